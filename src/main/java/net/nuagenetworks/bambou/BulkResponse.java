@@ -25,15 +25,17 @@
 package net.nuagenetworks.bambou;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 public class BulkResponse<T extends RestObject> implements Serializable {
 
@@ -70,12 +72,19 @@ public class BulkResponse<T extends RestObject> implements Serializable {
 
         @JsonIgnore
         public RestObject getRestObject(Class<? extends RestObject> type) {
+            return getRestObject(type, JsonCodec.getSharedInstance());
+        }
+
+        /**
+         * @return the object of the specified type read from the item data
+         *         with the specified codec, or null if the item failed
+         */
+        public RestObject getRestObject(Class<? extends RestObject> type, JsonCodec jsonCodec) {
             if (this.status.startsWith("2")) {
                 try {
-                    ObjectMapper mapper = new ObjectMapper();
-                    RestObject obj = mapper.treeToValue(this.data, type);
+                    RestObject obj = jsonCodec.treeToValue(this.data, type);
                     return obj;
-                } catch (JsonProcessingException e) {
+                } catch (RestException e) {
                     logger.info("Can't parse json object");
                 }
             }
@@ -93,4 +102,82 @@ public class BulkResponse<T extends RestObject> implements Serializable {
     public ResponseMetadata getResponseMetadata() { return this.responseMetadata; }
     public List<ResponseItem<T>> getResponse() { return this.response; }
 
+    /**
+     * Merges the responses to the successive chunks of a bulk request: item
+     * indexes are shifted to refer to positions in the whole list and the
+     * metadata counts are summed up.
+     */
+    static <T extends RestObject> BulkResponse<T> merge(List<BulkResponse<T>> chunkResponses, int chunkSize) {
+        List<ResponseItem<T>> items = new ArrayList<ResponseItem<T>>();
+        ResponseMetadata metadata = null;
+        long success = 0, failure = 0, total = 0;
+
+        for (int chunk = 0; chunk < chunkResponses.size(); chunk++) {
+            BulkResponse<T> chunkResponse = chunkResponses.get(chunk);
+            if (chunkResponse == null) {
+                continue;
+            }
+
+            if (chunkResponse.getResponse() != null) {
+                for (ResponseItem<T> item : chunkResponse.getResponse()) {
+                    item.setIndex(item.getIndex() + chunk * chunkSize);
+                    items.add(item);
+                }
+            }
+
+            ResponseMetadata chunkMetadata = chunkResponse.getResponseMetadata();
+            if (chunkMetadata != null) {
+                metadata = new ResponseMetadata();
+                success += parseCount(chunkMetadata.getSuccess());
+                failure += parseCount(chunkMetadata.getFailure());
+                total += parseCount(chunkMetadata.getTotal());
+            }
+        }
+
+        BulkResponse<T> response = new BulkResponse<T>();
+        response.setResponse(items);
+        if (metadata != null) {
+            metadata.setSuccess(String.valueOf(success));
+            metadata.setFailure(String.valueOf(failure));
+            metadata.setTotal(String.valueOf(total));
+            response.setResponseMetadata(metadata);
+        }
+
+        return response;
+    }
+
+    /**
+     * @return a response reporting the specified number of items as failed
+     *         with the specified status, for a chunk whose request failed
+     */
+    static <T extends RestObject> BulkResponse<T> failure(int itemCount, String status, String description) {
+        List<ResponseItem<T>> items = new ArrayList<ResponseItem<T>>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            ResponseItem<T> item = new ResponseItem<T>();
+            item.setStatus(status);
+            item.setIndex(i);
+            item.setData(JsonNodeFactory.instance.objectNode().put("description", description));
+            items.add(item);
+        }
+
+        ResponseMetadata metadata = new ResponseMetadata();
+        metadata.setSuccess("0");
+        metadata.setFailure(String.valueOf(itemCount));
+        metadata.setTotal(String.valueOf(itemCount));
+
+        BulkResponse<T> response = new BulkResponse<T>();
+        response.setResponse(items);
+        response.setResponseMetadata(metadata);
+        return response;
+    }
+
+    private static long parseCount(String count) {
+        try {
+            return (count != null) ? Long.parseLong(count.trim()) : 0;
+        } catch (NumberFormatException ex) {
+            logger.info("Can't parse bulk response count: " + count);
+            return 0;
+        }
+    }
+
 }
@@ -26,10 +26,22 @@
 */
 package net.nuagenetworks.bambou;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -37,6 +49,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import net.nuagenetworks.bambou.operation.RestFetcherOperations;
+import net.nuagenetworks.bambou.service.ResponseValidators;
 import net.nuagenetworks.bambou.util.BambouUtils;
 
 public class RestFetcher<T extends RestObject> extends ArrayList<T>implements RestFetcherOperations<T> {
@@ -54,6 +67,16 @@ public class RestFetcher<T extends RestObject> extends ArrayList<T>implements Re
     private RestObject parentRestObj;
     private Class<T> childRestObjClass;
 
+    // Children by ID, kept in sync with the list through its modification count
+    private transient Map<String, T> idIndex;
+    private transient int idIndexModCount;
+    private transient int unindexedCount;
+
+    // Validators of the last committed fetch, valid as long as the list is
+    // not modified otherwise
+    private transient ResponseValidators validators;
+    private transient int validatorsModCount;
+
     protected RestFetcher(RestObject parentRestObj, Class<T> childRestObjClass) {
         this.parentRestObj = parentRestObj;
         this.childRestObjClass = childRestObjClass;
@@ -178,12 +201,30 @@ public class RestFetcher<T extends RestObject> extends ArrayList<T>implements Re
             boolean commit) throws RestException {
         String resourceUrl = getResourceUrl(session);
         HttpHeaders headers = prepareHeaders(filter, orderBy, groupBy, page, pageSize);
+
+        // Only committed fetches leave the fetcher holding what was received
+        ResponseValidators validators = commit ? getValidators() : null;
         ResponseEntity<T[]> response = session.sendRequestWithRetry(HttpMethod.GET, resourceUrl, queryParameters, headers, null,
-                BambouUtils.getArrayClass(childRestObjClass));
-        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
+                BambouUtils.getArrayClass(childRestObjClass), validators);
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            // Unchanged since the last fetch, already committed: restore the
+            // state known to the server over any local modification
+            for (T restObj : this) {
+                restObj.restoreBaseline();
+            }
+            return new ArrayList<T>(this);
+        } else if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
             // Success
             T[] restObjs = response.getBody();
-            return merge(restObjs, commit);
+            if (isCacheable(groupBy)) {
+                cacheEntities(session, restObjs);
+            }
+            List<T> fetchedRestObjs = merge(session, restObjs, commit);
+            if (validators != null) {
+                validators.commit();
+                validatorsModCount = modCount;
+            }
+            return fetchedRestObjs;
         } else {
             // Error
             throw new RestException("Response received with status code: " + response.getStatusCode());
@@ -217,9 +258,195 @@ public class RestFetcher<T extends RestObject> extends ArrayList<T>implements Re
         }
     }
 
-    private List<T> merge(T[] restObjs, boolean shouldCommit) throws RestException {
+    @Override
+    public void fetchEach(String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize, String queryParameters, boolean commit,
+            Consumer<? super T> consumer) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            fetchEach(session, filter, orderBy, groupBy, page, pageSize, queryParameters, commit, consumer);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    /**
+     * Fetches the objects one at a time, decoding them straight from the
+     * response stream and handing them to the consumer, so that only one
+     * object is held in memory at a time unless they are committed to the
+     * fetcher.
+     */
+    @Override
+    public void fetchEach(RestSession<?> session, String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize, String queryParameters,
+            boolean commit, final Consumer<? super T> consumer) throws RestException {
+        String resourceUrl = getResourceUrl(session);
+        HttpHeaders headers = prepareHeaders(filter, orderBy, groupBy, page, pageSize);
+        final Set<String> currentIds = commit ? new HashSet<String>() : null;
+        final boolean cacheable = isCacheable(groupBy);
+        ResponseEntity<Void> response = session.sendStreamingRequestWithRetry(HttpMethod.GET, resourceUrl, queryParameters, headers, childRestObjClass,
+                restObj -> {
+                    try {
+                        if (cacheable) {
+                            restObj.cacheEntity(session);
+                        }
+                        if (currentIds != null) {
+                            commit(session, restObj, currentIds);
+                        }
+                    } catch (RestException ex) {
+                        throw new UncheckedRestException(ex);
+                    }
+
+                    consumer.accept(restObj);
+                });
+        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
+            // Success
+            if (currentIds != null) {
+                prune(currentIds);
+            }
+        } else {
+            // Error
+            throw new RestException("Response received with status code: " + response.getStatusCode());
+        }
+    }
+
+    @Override
+    public List<T> fetchAll(String filter, String orderBy, int pageSize, int parallelism) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return fetchAll(session, filter, orderBy, pageSize, parallelism);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    /**
+     * Fetches all the objects matching the filter: the total is first read
+     * through a count request, then the pages are requested concurrently, at
+     * most <code>parallelism</code> at a time from the calling thread and the
+     * session executor. Results are reassembled in server order and committed
+     * to the fetcher.
+     */
+    @Override
+    public List<T> fetchAll(RestSession<?> session, String filter, String orderBy, int pageSize, int parallelism) throws RestException {
+        if (pageSize <= 0 || parallelism <= 0) {
+            throw new RestException("Invalid page size or parallelism: " + pageSize + ", " + parallelism);
+        }
+
+        int count = count(session, filter, orderBy, null, null, null, null, true);
+        int pageCount = (count + pageSize - 1) / pageSize;
+        List<List<T>> pages = fetchPages(session, filter, orderBy, pageSize, pageCount, Math.min(parallelism, pageCount));
+
+        List<T> restObjs = new ArrayList<T>(count);
+        for (List<T> page : pages) {
+            restObjs.addAll(page);
+        }
+
+        // Objects created since the count was read end up in extra pages
+        if (pageCount > 0 && pages.get(pageCount - 1).size() == pageSize) {
+            for (int page = pageCount;; page++) {
+                List<T> extraPage = fetch(session, filter, orderBy, null, page, pageSize, null, false);
+                restObjs.addAll(extraPage);
+                if (extraPage.size() < pageSize) {
+                    break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T[] restObjArray = restObjs.toArray((T[]) Array.newInstance(childRestObjClass, restObjs.size()));
+        return merge(session, restObjArray, true);
+    }
+
+    private List<List<T>> fetchPages(final RestSession<?> session, final String filter, final String orderBy, final int pageSize, final int pageCount,
+            int parallelism) throws RestException {
+        final List<List<T>> pages = new ArrayList<List<T>>(Collections.<List<T>> nCopies(pageCount, null));
+
+        // The calling thread requests pages too, so that a saturated
+        // executor cannot hold the fetch up
+        session.runConcurrently(pageCount, parallelism,
+                page -> pages.set(page, fetch(session, filter, orderBy, null, page, pageSize, null, false)));
+
+        return pages;
+    }
+
+    @Override
+    public RestFuture<List<T>> getAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.getAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public RestFuture<List<T>> fetchAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.fetchAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public RestFuture<Integer> countAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.countAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public Iterable<T> iterate(String filter, String orderBy, int pageSize) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return iterate(session, filter, orderBy, pageSize);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public Iterable<T> iterate(final RestSession<?> session, final String filter, final String orderBy, final int pageSize) {
+        return () -> new RestFetcherPageIterator<T>(this, session, filter, orderBy, pageSize);
+    }
+
+    @Override
+    public Stream<T> stream(String filter, String orderBy, int pageSize) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return stream(session, filter, orderBy, pageSize);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public Stream<T> stream(RestSession<?> session, String filter, String orderBy, int pageSize) {
+        Iterator<T> iterator = new RestFetcherPageIterator<T>(this, session, filter, orderBy, pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Flow.Publisher<T> publisher(String filter, String orderBy, int pageSize) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return publisher(session, filter, orderBy, pageSize);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public Flow.Publisher<T> publisher(RestSession<?> session, String filter, String orderBy, int pageSize) {
+        return new RestFetcherPublisher<T>(this, session, filter, orderBy, pageSize);
+    }
+
+    private List<T> merge(RestSession<?> session, T[] restObjs, boolean shouldCommit) throws RestException {
         List<T> fetchedRestObjs = new ArrayList<T>();
-        List<String> currentIds = new ArrayList<String>();
+        Set<String> currentIds = new HashSet<String>();
 
         if (restObjs != null) {
             for (T restObj : restObjs) {
@@ -233,28 +460,153 @@ public class RestFetcher<T extends RestObject> extends ArrayList<T>implements Re
                     continue;
                 }
 
-                currentIds.add(restObj.getId());
-
-                if (contains(restObj)) {
-                    int idx = indexOf(restObj);
-                    RestObject currentRestObj = get(idx);
-                    BambouUtils.copyJsonProperties(restObj, currentRestObj);
-                } else {
-                    add(restObj);
-                }
+                commit(session, restObj, currentIds);
             }
         }
 
         if (shouldCommit) {
-            for (Iterator<T> iter = iterator(); iter.hasNext();) {
-                T obj = iter.next();
-                if (!currentIds.contains(obj.id)) {
-                    iter.remove();
+            prune(currentIds);
+        }
+
+        return fetchedRestObjs;
+    }
+
+    private ResponseValidators getValidators() {
+        if (validators == null) {
+            validators = new ResponseValidators();
+        } else if (validatorsModCount != modCount) {
+            validators.reset();
+        }
+
+        return validators;
+    }
+
+    private void cacheEntities(RestSession<?> session, T[] restObjs) throws RestException {
+        if (restObjs != null && session.getEntityCache() != null) {
+            for (T restObj : restObjs) {
+                if (restObj != null) {
+                    restObj.cacheEntity(session);
                 }
             }
         }
+    }
 
-        return fetchedRestObjs;
+    private static boolean isCacheable(String[] groupBy) {
+        // Grouped fetches return aggregates rather than entities
+        return groupBy == null || groupBy.length == 0;
+    }
+
+    private void commit(RestSession<?> session, T restObj, Set<String> currentIds) throws RestException {
+        currentIds.add(restObj.getId());
+
+        T currentRestObj = find(restObj);
+        if (currentRestObj != null) {
+            BambouUtils.copyJsonProperties(restObj, currentRestObj);
+            currentRestObj.markClean();
+        } else {
+            restObj.markClean();
+            addIndexed(restObj);
+        }
+    }
+
+    private void prune(Set<String> currentIds) {
+        removeIf(obj -> !currentIds.contains(obj.id));
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        if (obj instanceof RestObject) {
+            return find((RestObject) obj) != null;
+        }
+
+        return super.contains(obj);
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        if (obj instanceof RestObject && find((RestObject) obj) == null) {
+            return false;
+        }
+
+        return super.remove(obj);
+    }
+
+    @Override
+    public T set(int index, T restObj) {
+        // Replacing an element does not change modCount
+        idIndex = null;
+        if (validators != null) {
+            validators.reset();
+        }
+
+        return super.set(index, restObj);
+    }
+
+    @Override
+    public Object clone() {
+        RestFetcher<?> clone = (RestFetcher<?>) super.clone();
+        clone.idIndex = null;
+        clone.validators = null;
+        return clone;
+    }
+
+    /**
+     * @return the object of this fetcher equal to the specified one, looked up
+     *         by ID
+     */
+    private T find(RestObject restObj) {
+        String id = restObj.getId();
+        if (id == null) {
+            // Objects without an ID are never equal to another object
+            return null;
+        }
+
+        T candidate = getIdIndex().get(id);
+        if ((candidate == null && unindexedCount > 0) || (candidate != null && !id.equals(candidate.getId()))) {
+            // IDs were assigned or changed since the index was built
+            rebuildIdIndex();
+            candidate = idIndex.get(id);
+        }
+
+        return (candidate != null && candidate.equals(restObj)) ? candidate : null;
+    }
+
+    private void addIndexed(T restObj) {
+        Map<String, T> index = getIdIndex();
+        add(restObj);
+
+        String id = restObj.getId();
+        if (id != null) {
+            index.putIfAbsent(id, restObj);
+        } else {
+            unindexedCount++;
+        }
+        idIndexModCount = modCount;
+    }
+
+    private Map<String, T> getIdIndex() {
+        // The index is rebuilt whenever the list was modified behind its back
+        if (idIndex == null || idIndexModCount != modCount) {
+            rebuildIdIndex();
+        }
+
+        return idIndex;
+    }
+
+    private void rebuildIdIndex() {
+        Map<String, T> index = new HashMap<String, T>(Math.max(16, size() * 4 / 3 + 1));
+        int unindexed = 0;
+        for (T restObj : this) {
+            if (restObj.getId() != null) {
+                index.putIfAbsent(restObj.getId(), restObj);
+            } else {
+                unindexed++;
+            }
+        }
+
+        idIndex = index;
+        unindexedCount = unindexed;
+        idIndexModCount = modCount;
     }
 
     private HttpHeaders prepareHeaders(String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize) {
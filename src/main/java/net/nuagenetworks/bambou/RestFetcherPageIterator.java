@@ -0,0 +1,126 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Iterates over all the pages of a fetcher. The next page is requested in the
+ * background, on the session's executor, while the current one is consumed;
+ * iteration stops on the first page shorter than the page size. Fetched
+ * objects are not committed to the fetcher.
+ */
+class RestFetcherPageIterator<T extends RestObject> implements Iterator<T> {
+
+    private final RestFetcher<T> fetcher;
+    private final RestSession<?> session;
+    private final String filter;
+    private final String orderBy;
+    private final int pageSize;
+
+    private int nextPage;
+    private boolean lastPage;
+    private Iterator<T> currentPage = Collections.emptyIterator();
+    private CompletableFuture<List<T>> pendingPage;
+
+    RestFetcherPageIterator(RestFetcher<T> fetcher, RestSession<?> session, String filter, String orderBy, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        this.fetcher = fetcher;
+        this.session = session;
+        this.filter = filter;
+        this.orderBy = orderBy;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext()) {
+            if (lastPage) {
+                return false;
+            }
+
+            List<T> page = awaitPage();
+            lastPage = page.size() < pageSize;
+            if (!lastPage) {
+                // Prefetch the next page while this one is consumed
+                pendingPage = requestPage(nextPage++);
+            }
+
+            currentPage = page.iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return currentPage.next();
+    }
+
+    private List<T> awaitPage() {
+        if (pendingPage == null) {
+            // First page
+            return fetchPage(nextPage++);
+        }
+
+        try {
+            return pendingPage.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedRestException) {
+                throw (UncheckedRestException) ex.getCause();
+            }
+
+            throw ex;
+        } finally {
+            pendingPage = null;
+        }
+    }
+
+    private CompletableFuture<List<T>> requestPage(final int page) {
+        return CompletableFuture.supplyAsync(() -> fetchPage(page), session.getExecutor());
+    }
+
+    private List<T> fetchPage(int page) {
+        try {
+            return fetcher.fetch(session, filter, orderBy, null, page, pageSize, null, false);
+        } catch (RestException ex) {
+            throw new UncheckedRestException(ex);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the objects of a fetcher, page by page. A page is only requested,
+ * on the session's executor, once the subscriber has signalled demand for
+ * more objects than are buffered, so that at most one page is held in memory
+ * per subscription. Fetched objects are not committed to the fetcher.
+ */
+class RestFetcherPublisher<T extends RestObject> implements Flow.Publisher<T> {
+
+    private final RestFetcher<T> fetcher;
+    private final RestSession<?> session;
+    private final String filter;
+    private final String orderBy;
+    private final int pageSize;
+
+    RestFetcherPublisher(RestFetcher<T> fetcher, RestSession<?> session, String filter, String orderBy, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        this.fetcher = fetcher;
+        this.session = session;
+        this.filter = filter;
+        this.orderBy = orderBy;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class PageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean done;
+        private volatile List<T> fetchedPage;
+        private volatile Throwable fetchError;
+
+        // Only accessed while draining
+        private final Deque<T> buffer = new ArrayDeque<T>();
+        private int nextPage;
+        private boolean fetching;
+        private boolean lastPage;
+
+        private PageSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fetchError = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                long current;
+                do {
+                    current = demand.get();
+                } while (current != Long.MAX_VALUE && !demand.compareAndSet(current, (current + n < 0) ? Long.MAX_VALUE : current + n));
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            // A page being fetched is dropped once received
+            done = true;
+        }
+
+        /**
+         * Delivers buffered objects and requests pages. Signals are
+         * serialized: a single thread drains at a time, other callers only
+         * record that another pass is needed.
+         */
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (done) {
+                    return;
+                }
+
+                List<T> page = fetchedPage;
+                if (page != null) {
+                    fetchedPage = null;
+                    fetching = false;
+                    lastPage = page.size() < pageSize;
+                    buffer.addAll(page);
+                }
+
+                Throwable error = fetchError;
+                if (error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                    return;
+                }
+
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && !buffer.isEmpty()) {
+                    if (done) {
+                        return;
+                    }
+
+                    subscriber.onNext(buffer.poll());
+                    emitted++;
+                }
+
+                if (emitted != 0 && requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+
+                if (buffer.isEmpty() && !fetching) {
+                    if (lastPage) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+
+                    if (demand.get() > 0 && !done) {
+                        fetching = true;
+                        requestPage(nextPage++);
+                    }
+                }
+
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void requestPage(final int page) {
+            try {
+                session.getExecutor().execute(() -> {
+                    try {
+                        fetchedPage = fetcher.fetch(session, filter, orderBy, null, page, pageSize, null, false);
+                    } catch (Throwable ex) {
+                        fetchError = ex;
+                    }
+
+                    drain();
+                });
+            } catch (RuntimeException ex) {
+                fetchError = ex;
+                pendingDrains.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.nuagenetworks.bambou.util.BambouExecutors;
+
+/**
+ * Result of an asynchronous REST operation. Cancelling the future with
+ * <code>mayInterruptIfRunning</code> set, or letting it time out, interrupts
+ * the thread running the operation; whether the underlying HTTP exchange is
+ * aborted then depends on the transport.
+ */
+public class RestFuture<V> extends CompletableFuture<V> {
+
+    private final Object runnerLock = new Object();
+    private Thread runner;
+
+    /**
+     * Runs the task on the specified executor.
+     */
+    public static <V> RestFuture<V> submit(final Callable<V> task, Executor executor) {
+        final RestFuture<V> future = new RestFuture<V>();
+        try {
+            executor.execute(() -> future.run(task));
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && mayInterruptIfRunning) {
+            interruptRunner();
+        }
+
+        return cancelled;
+    }
+
+    /**
+     * Completes this future with a {@link TimeoutException} if the operation
+     * has not completed within the specified time. Unlike
+     * {@link #orTimeout(long, TimeUnit)}, the thread running the operation is
+     * interrupted as well.
+     *
+     * @return this future
+     */
+    public RestFuture<V> withTimeout(long timeout, TimeUnit unit) {
+        final ScheduledFuture<?> timer = BambouExecutors.getScheduler().schedule(() -> {
+            if (completeExceptionally(new TimeoutException("REST operation timed out after " + unit.toMillis(timeout) + " ms"))) {
+                interruptRunner();
+            }
+        }, timeout, unit);
+        whenComplete((result, ex) -> timer.cancel(false));
+
+        return this;
+    }
+
+    private void run(Callable<V> task) {
+        if (isDone()) {
+            // Cancelled before it started
+            return;
+        }
+
+        synchronized (runnerLock) {
+            runner = Thread.currentThread();
+        }
+
+        try {
+            complete(task.call());
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        } finally {
+            synchronized (runnerLock) {
+                runner = null;
+            }
+
+            // Do not leak an interruption to the next task of the thread
+            Thread.interrupted();
+        }
+    }
+
+    private void interruptRunner() {
+        synchronized (runnerLock) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
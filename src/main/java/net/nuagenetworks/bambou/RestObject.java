@@ -30,6 +30,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -42,11 +43,16 @@ import org.springframework.http.ResponseEntity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import net.nuagenetworks.bambou.annotation.RestEntity;
+import net.nuagenetworks.bambou.cache.RestEntityCache;
+import net.nuagenetworks.bambou.metadata.EntityMetadata;
 import net.nuagenetworks.bambou.operation.RestObjectOperations;
+import net.nuagenetworks.bambou.service.ResponseValidators;
 import net.nuagenetworks.bambou.util.BambouUtils;
+import net.nuagenetworks.bambou.util.JsonCodec;
+import net.nuagenetworks.bambou.util.PropertyCopier;
 
 public class RestObject implements RestObjectOperations, Serializable {
 
@@ -67,6 +73,14 @@ public class RestObject implements RestObjectOperations, Serializable {
     private transient Map<String, RestFetcher<? extends RestObject>> fetcherRegistry = Collections
             .synchronizedMap(new HashMap<String, RestFetcher<? extends RestObject>>());
 
+    // Copy of the object as last known to the server, null until the object
+    // has been fetched, created or saved. Only serialized when saving.
+    private transient volatile RestObject baseline;
+
+    // Validators of the last fetch, valid as long as the baseline it set is
+    private transient volatile ResponseValidators validators;
+    private transient volatile RestObject validatedBaseline;
+
     public String getId() {
         return id;
     }
@@ -295,6 +309,46 @@ public class RestObject implements RestObjectOperations, Serializable {
             throw new RestException("Session not available in current thread");
         }
     }
+
+    @Override
+    public RestFuture<Void> fetchAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.fetchAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public RestFuture<Void> saveAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.saveAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public RestFuture<Void> deleteAsync() throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.deleteAsync(this);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
+
+    @Override
+    public RestFuture<Void> createChildAsync(RestObject childRestObj) throws RestException {
+        RestSession<?> session = RestSession.getCurrentSession();
+        if (session != null) {
+            return session.createChildAsync(this, childRestObj);
+        } else {
+            throw new RestException("Session not available in current thread");
+        }
+    }
     
     
 
@@ -308,14 +362,47 @@ public class RestObject implements RestObjectOperations, Serializable {
     }
 
     @Override
-    public void fetch(RestSession<?> session, boolean withMetadata) throws RestException {
+    public void fetch(final RestSession<?> session, boolean withMetadata) throws RestException {
+        RestEntityCache entityCache = session.getEntityCache();
+        if (entityCache == null || withMetadata || id == null) {
+            ResponseValidators validators = getValidators();
+            RestObject responseRestObj = fetchFromServer(session, getResourceUrl(session), withMetadata, validators);
+            if (responseRestObj == null) {
+                // Unchanged since the last fetch: restore the state known to
+                // the server over any local modification
+                restoreBaseline();
+                return;
+            }
+
+            BambouUtils.copyJsonProperties(responseRestObj, this);
+            markClean();
+            validators.commit();
+            validatedBaseline = baseline;
+            return;
+        }
+
+        // Serve the properties from the cache, which hands out shared trees
+        final String resourceUrl = getResourceUrl(session);
+        JsonNode properties = entityCache.get(getRestName(), id, () -> fetchFromServer(session, resourceUrl, false, null).getJsonProperties(session));
+        RestObject cachedRestObj = session.getRestClientService().getJsonCodec().treeToValue(properties, getClass());
+        BambouUtils.copyJsonProperties(cachedRestObj, this);
+        markClean();
+    }
+
+    /**
+     * @return the object fetched, or null if unchanged as per the specified
+     *         validators
+     */
+    private RestObject fetchFromServer(RestSession<?> session, String resourceUrl, boolean withMetadata, ResponseValidators validators)
+            throws RestException {
         String params = BambouUtils.getEmbededMetadataParam(withMetadata);
-        ResponseEntity<RestObject[]> response = session.sendRequestWithRetry(HttpMethod.GET, getResourceUrl(session), params, null, null,
-                BambouUtils.getArrayClass(this));
-        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL && response.getBody().length == 1) {
+        ResponseEntity<RestObject[]> response = session.sendRequestWithRetry(HttpMethod.GET, resourceUrl, params, null, null,
+                BambouUtils.getArrayClass(this), validators);
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && validators != null) {
+            return null;
+        } else if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL && response.getBody().length == 1) {
             // Success
-            RestObject responseRestObj = response.getBody()[0];
-            BambouUtils.copyJsonProperties(responseRestObj, this);
+            return response.getBody()[0];
         } else {
             // Error
             throw new RestException("Response received with status code: " + response.getStatusCode());
@@ -329,10 +416,29 @@ public class RestObject implements RestObjectOperations, Serializable {
 
     @Override
     public void save(RestSession<?> session, Integer responseChoice) throws RestException {
+        RestObject sentRestObj = snapshot();
+        RestObject baseline = this.baseline;
+
+        // Only send the properties modified since the object was last
+        // fetched, created or saved, and nothing at all if none was
+        Object content = this;
+        if (baseline != null) {
+            ObjectNode modifiedProperties = getModifiedProperties(baseline.getJsonProperties(session), sentRestObj.getJsonProperties(session));
+            if (modifiedProperties.size() == 0) {
+                // Debug
+                logger.debug("Skipping save of unmodified object: " + getResourceUrl(session));
+                return;
+            }
+
+            content = modifiedProperties;
+        }
+
         String params = BambouUtils.getResponseChoiceParam(responseChoice);
-        ResponseEntity<Object> response = session.sendRequestWithRetry(HttpMethod.PUT, getResourceUrl(session), params, null, this, Object.class);
+        ResponseEntity<Object> response = session.sendRequestWithRetry(HttpMethod.PUT, getResourceUrl(session), params, null, content, Object.class);
         if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
             // Success
+            this.baseline = sentRestObj;
+            invalidateCachedEntity(session);
         } else {
             // Error
             throw new RestException("Response received with status code: " + response.getStatusCode());
@@ -350,6 +456,7 @@ public class RestObject implements RestObjectOperations, Serializable {
         ResponseEntity<Object> response = session.sendRequestWithRetry(HttpMethod.DELETE, getResourceUrl(session), params, null, null, Object.class);
         if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
             // Success
+            invalidateCachedEntity(session);
         } else {
             // Error
             throw new RestException("Response received with status code: " + response.getStatusCode());
@@ -374,6 +481,8 @@ public class RestObject implements RestObjectOperations, Serializable {
 
             RestObject responseRestObj = response.getBody()[0];
             BambouUtils.copyJsonProperties(responseRestObj, childRestObj);
+            childRestObj.markClean();
+            childRestObj.cacheEntity(session);
 
             if (commit) {
                 addChild(childRestObj);
@@ -384,27 +493,32 @@ public class RestObject implements RestObjectOperations, Serializable {
         }
     }
 
-    public <T extends RestObject> BulkResponse<T> createChildren(RestSession<?> session, List<T> children) throws RestException {
-        ResponseEntity<BulkResponse> response = session.sendRequestWithRetry(HttpMethod.POST, getResourceUrlForChildType(session, children.get(0).getClass()),
-                null, null, children, BulkResponse.class);
-        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL ) {
-            ObjectMapper mapper = new ObjectMapper();
-            BulkResponse<T> resp = response.getBody();
-            for (BulkResponse.ResponseItem item : resp.getResponse()) {
-                if (item.getStatus().startsWith("2")) {
-                    RestObject obj = item.getRestObject(children.get(0).getClass());
-                    RestObject target = children.get(item.getIndex());
-                    BambouUtils.copyJsonProperties(obj, target);
-                    addChild(target);
-                } else {
-                    logger.debug("Error creating bulk entity: "+item.getStatus());
-                }
+    public <T extends RestObject> BulkResponse<T> createChildren(final RestSession<?> session, List<T> children) throws RestException {
+        final String url = getResourceUrlForChildType(session, children.get(0).getClass());
+        BulkResponse<T> resp = session.sendBulkRequest(children, chunk -> {
+            ResponseEntity<BulkResponse> response = session.sendRequestWithRetry(HttpMethod.POST, url, null, null, chunk, BulkResponse.class);
+            if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL ) {
+                return response.getBody();
+            } else {
+                // Error
+                throw new RestException("Response received with status code: " + response.getStatusCode());
+            }
+        });
+
+        // Item indexes refer to the whole list, whatever the chunks
+        for (BulkResponse.ResponseItem item : resp.getResponse()) {
+            if (item.getStatus().startsWith("2")) {
+                RestObject obj = item.getRestObject(children.get(0).getClass(), session.getRestClientService().getJsonCodec());
+                RestObject target = children.get(item.getIndex());
+                BambouUtils.copyJsonProperties(obj, target);
+                target.markClean();
+                target.cacheEntity(session);
+                addChild(target);
+            } else {
+                logger.debug("Error creating bulk entity: "+item.getStatus());
             }
-            return resp;
-        } else {
-            // Error
-            throw new RestException("Response received with status code: " + response.getStatusCode());
         }
+        return resp;
     }
 
     @Override
@@ -506,8 +620,7 @@ public class RestObject implements RestObjectOperations, Serializable {
 
     @JsonIgnore
     protected static String getRestName(Class<?> restObjClass) {
-        RestEntity annotation = restObjClass.getAnnotation(RestEntity.class);
-        return annotation.restName();
+        return EntityMetadata.forClass(restObjClass).getRestName();
     }
 
     private void addChild(RestObject childRestObj) throws RestException {
@@ -556,28 +669,135 @@ public class RestObject implements RestObjectOperations, Serializable {
 
     @JsonIgnore
     protected String getResourceUrl(RestSession<?> session) {
-        // Get the object's resource name
-        RestEntity annotation = getClass().getAnnotation(RestEntity.class);
-        String resourceName = annotation.resourceName();
-
-        // Build the base URL
-        String url = session.getRestBaseUrl();
+        // Get the URL of the object's collection, cached by the session
+        String url = session.getResourceUrlForParentType(getClass());
 
         // Build the complete URL for the specified object
         if (id != null) {
-            return String.format("%s/%s/%s", url, resourceName, id);
+            return new StringBuilder(url.length() + id.length() + 1).append(url).append('/').append(id).toString();
         } else {
-            return String.format("%s/%s", url, resourceName);
+            return url;
+        }
+    }
+
+    /**
+     * Records the current JSON properties of the object as the state known to
+     * the server. Subsequent saves only send the properties modified since.
+     * The properties are copied through their accessors, they are only
+     * serialized when the object gets saved.
+     */
+    public void markClean() throws RestException {
+        baseline = snapshot();
+    }
+
+    /**
+     * Forgets the state known to the server, so that the next save sends all
+     * the JSON properties of the object.
+     */
+    public void markDirty() {
+        baseline = null;
+    }
+
+    /**
+     * Returns the names of the JSON properties modified since the object was
+     * last fetched, created or saved, or null if the object was never seen
+     * by the server.
+     */
+    public List<String> getModifiedPropertyNames(RestSession<?> session) throws RestException {
+        RestObject baseline = this.baseline;
+        if (baseline == null) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<String>();
+        Iterator<String> it = getModifiedProperties(baseline.getJsonProperties(session), getJsonProperties(session)).fieldNames();
+        while (it.hasNext()) {
+            names.add(it.next());
+        }
+
+        return names;
+    }
+
+    private ResponseValidators getValidators() {
+        ResponseValidators validators = this.validators;
+        if (validators == null) {
+            validators = this.validators = new ResponseValidators();
+        } else if (baseline == null || baseline != validatedBaseline) {
+            validators.reset();
+        }
+
+        return validators;
+    }
+
+    /**
+     * Stores the object in the session's entity cache. Only called on
+     * objects just received from the server.
+     */
+    void cacheEntity(RestSession<?> session) throws RestException {
+        RestEntityCache entityCache = session.getEntityCache();
+        if (entityCache != null && id != null) {
+            entityCache.put(getRestName(), id, getJsonProperties(session));
+        }
+    }
+
+    /**
+     * Restores the state known to the server over any local modification.
+     */
+    void restoreBaseline() throws RestException {
+        RestObject baseline = this.baseline;
+        if (baseline != null) {
+            PropertyCopier.forClass(getClass()).copyDetached(baseline, this);
+        }
+    }
+
+    private RestObject snapshot() throws RestException {
+        try {
+            RestObject snapshot = getClass().getDeclaredConstructor().newInstance();
+            PropertyCopier.forClass(getClass()).copyDetached(this, snapshot);
+            return snapshot;
+        } catch (ReflectiveOperationException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    private void invalidateCachedEntity(RestSession<?> session) {
+        RestEntityCache entityCache = session.getEntityCache();
+        if (entityCache != null && id != null) {
+            entityCache.invalidate(getRestName(), id);
+        }
+    }
+
+    private ObjectNode getJsonProperties(RestSession<?> session) throws RestException {
+        JsonCodec jsonCodec = session.getRestClientService().getJsonCodec();
+        return (ObjectNode) jsonCodec.valueToTree(this);
+    }
+
+    private static ObjectNode getModifiedProperties(ObjectNode baseline, ObjectNode properties) {
+        ObjectNode modifiedProperties = properties.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> it = properties.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> property = it.next();
+            if (!property.getValue().equals(baseline.get(property.getKey()))) {
+                modifiedProperties.set(property.getKey(), property.getValue());
+            }
+        }
+
+        // Properties left out of the serialized object have been cleared
+        Iterator<String> names = baseline.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!properties.has(name)) {
+                modifiedProperties.putNull(name);
+            }
         }
+
+        return modifiedProperties;
     }
 
     @JsonIgnore
     protected String getResourceUrlForChildType(RestSession<?> session, Class<?> childRestObjClass) {
-        // Get the child object's resource name
-        RestEntity annotation = childRestObjClass.getAnnotation(RestEntity.class);
-        String childResourceName = annotation.resourceName();
-
-        return String.format("%s/%s", getResourceUrl(session), childResourceName);
+        // Get the child object's metadata
+        return EntityMetadata.forClass(childRestObjClass).getResourceUrl(getResourceUrl(session));
     }
 
     @Override
@@ -604,6 +824,17 @@ public class RestObject implements RestObjectOperations, Serializable {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        // Objects without an ID are never equal to another object
+        if (id == null) {
+            return super.hashCode();
+        }
+
+        String restName = getRestName();
+        return 31 * (restName != null ? restName.hashCode() : 0) + id.hashCode();
+    }
+
     @Override
     public String toString() {
         return "RestObject [id=" + id + ", parentId=" + parentId + ", parentType=" + parentType + ", fetcherRegistry=" + fetcherRegistry + "]";
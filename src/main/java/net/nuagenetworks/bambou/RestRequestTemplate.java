@@ -0,0 +1,126 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.binary.Base64;
+import org.springframework.http.HttpHeaders;
+
+import net.nuagenetworks.bambou.metadata.EntityMetadata;
+
+/**
+ * Parts of the requests of a session that only depend on its configuration:
+ * the base URL, the entity collection URLs under it and the headers sent with
+ * every request. A template is immutable apart from its caches and is
+ * replaced by the session whenever its configuration changes.
+ */
+final class RestRequestTemplate {
+
+    private static final String ORGANIZATION_HEADER = "X-Nuage-Organization";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String IMPERSONATION_HEADER = "X-Nuage-ProxyUser";
+
+    private final String username;
+    private final String enterprise;
+    private final String impersonation;
+    private final String baseUrl;
+    private final ConcurrentMap<Class<?>, String> resourceUrls = new ConcurrentHashMap<Class<?>, String>();
+    private volatile BaseHeaders baseHeaders;
+
+    RestRequestTemplate(String username, String enterprise, String impersonationUsername, String impersonationEnterprise, String apiUrl,
+            String apiPrefix, double version) {
+        this.username = username;
+        this.enterprise = enterprise;
+        this.impersonation = (impersonationUsername != null && impersonationEnterprise != null) ? impersonationUsername + "@" + impersonationEnterprise
+                : null;
+        this.baseUrl = apiUrl + "/" + apiPrefix + "/v" + (int) version;
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return the URL of the collection of the specified entity class directly
+     *         under the base URL
+     */
+    String getResourceUrl(Class<?> restObjClass) {
+        String resourceUrl = resourceUrls.get(restObjClass);
+        if (resourceUrl == null) {
+            resourceUrl = EntityMetadata.forClass(restObjClass).getResourceUrl(baseUrl);
+            resourceUrls.putIfAbsent(restObjClass, resourceUrl);
+        }
+
+        return resourceUrl;
+    }
+
+    /**
+     * @return the read-only headers sent with every request, authenticated
+     *         with the specified secret (API key or password). They are only
+     *         rebuilt when the secret changes.
+     */
+    HttpHeaders getHeaders(String secret) {
+        BaseHeaders baseHeaders = this.baseHeaders;
+        if (baseHeaders == null || !Objects.equals(baseHeaders.secret, secret)) {
+            baseHeaders = new BaseHeaders(secret, createHeaders(secret));
+            this.baseHeaders = baseHeaders;
+        }
+
+        return baseHeaders.headers;
+    }
+
+    String getAuthorization(String secret) {
+        return String.format("XREST %s", Base64.encodeBase64String(String.format("%s:%s", username, secret).getBytes()));
+    }
+
+    private HttpHeaders createHeaders(String secret) {
+        HttpHeaders headers = new HttpHeaders();
+        if (impersonation != null) {
+            headers.set(IMPERSONATION_HEADER, impersonation);
+        }
+
+        headers.set(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE_JSON);
+        headers.set(ORGANIZATION_HEADER, enterprise);
+        headers.set(HttpHeaders.AUTHORIZATION, getAuthorization(secret));
+
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private static final class BaseHeaders {
+
+        private final String secret;
+        private final HttpHeaders headers;
+
+        private BaseHeaders(String secret, HttpHeaders headers) {
+            this.secret = secret;
+            this.headers = headers;
+        }
+    }
+}
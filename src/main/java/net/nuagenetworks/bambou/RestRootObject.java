@@ -30,8 +30,6 @@ import org.apache.commons.codec.digest.DigestUtils;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import net.nuagenetworks.bambou.annotation.RestEntity;
-
 public class RestRootObject extends RestObject {
 
     private static final long serialVersionUID = 1L;
@@ -45,6 +43,9 @@ public class RestRootObject extends RestObject {
     @JsonProperty(value = "APIKey")
     protected String apiKey;
 
+    @JsonProperty(value = "APIKeyExpiry")
+    protected Long apiKeyExpiry;
+
     private transient String newPassword;
 
     public String getUserName() {
@@ -63,6 +64,17 @@ public class RestRootObject extends RestObject {
         this.apiKey = apiKey;
     }
 
+    /**
+     * @return the expiry time of the API key, in milliseconds since the epoch
+     */
+    public Long getApiKeyExpiry() {
+        return apiKeyExpiry;
+    }
+
+    public void setApiKeyExpiry(Long apiKeyExpiry) {
+        this.apiKeyExpiry = apiKeyExpiry;
+    }
+
     public String getPassword() {
         return password;
     }
@@ -91,22 +103,11 @@ public class RestRootObject extends RestObject {
     }
 
     protected String getResourceUrl(RestSession<?> session) {
-        // Get the object's resource name
-        RestEntity annotation = getClass().getAnnotation(RestEntity.class);
-        String resourceName = annotation.resourceName();
-
-        // Build the base URL
-        String url = session.getRestBaseUrl();
-
-        return String.format("%s/%s", url, resourceName);
+        return session.getResourceUrlForParentType(getClass());
     }
 
     protected String getResourceUrlForChildType(RestSession<?> session, Class<?> childRestObjClass) {
-        // Get the child object's resource name
-        RestEntity annotation = childRestObjClass.getAnnotation(RestEntity.class);
-        String resourceName = annotation.resourceName();
-
-        return String.format("%s/%s", session.getRestBaseUrl(), resourceName);
+        return session.getResourceUrlForParentType(childRestObjClass);
     }
 
     @Override
@@ -26,9 +26,23 @@
 */
 package net.nuagenetworks.bambou;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
-import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,25 +50,39 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestOperations;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import net.nuagenetworks.bambou.annotation.RestEntity;
+import net.nuagenetworks.bambou.cache.RestEntityCache;
 import net.nuagenetworks.bambou.jms.RestPushCenterJmsActiveMQ;
 import net.nuagenetworks.bambou.jms.RestPushCenterJmsDirectActiveMQ;
 import net.nuagenetworks.bambou.operation.RestSessionOperations;
+import net.nuagenetworks.bambou.service.ResponseValidators;
 import net.nuagenetworks.bambou.service.RestClientService;
+import net.nuagenetworks.bambou.service.RestClientTemplate;
+import net.nuagenetworks.bambou.util.BambouExecutors;
 import net.nuagenetworks.bambou.util.BambouUtils;
 
-public class RestSession<R extends RestRootObject> implements RestSessionOperations {
+public class RestSession<R extends RestRootObject> implements RestSessionOperations, AutoCloseable {
 
-    private static final String ORGANIZATION_HEADER = "X-Nuage-Organization";
-    private static final String CONTENT_TYPE_JSON = "application/json";
-    private static final String IMPERSONATION_HEADER = "X-Nuage-ProxyUser";
+    private static final long DEFAULT_API_KEY_RENEWAL_MARGIN = TimeUnit.MINUTES.toMillis(5);
+    private static final long MIN_API_KEY_RENEWAL_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+    private static final int DEFAULT_BULK_CONCURRENCY = 4;
 
     private static final Logger logger = LoggerFactory.getLogger(RestSession.class);
     private static final ThreadLocal<RestSession<?>> currentSession = new ThreadLocal<RestSession<?>>();
 
+    /**
+     * Binding of a session to the current thread, see {@link RestSession#bind()}.
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
     @Autowired
     private RestClientService restClientService;
 
@@ -68,28 +96,59 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
     private String certificate;
     private String privateKey;
     private double version;
-    private String apiKey;
+    private volatile String apiKey;
+    private volatile long apiKeyGeneration;
     private Class<R> restRootObjClass;
-    private R restRootObj;
+    private volatile R restRootObj;
+    private volatile RestRequestTemplate requestTemplate;
+    private Executor executor;
+    private long apiKeyRenewalMargin = DEFAULT_API_KEY_RENEWAL_MARGIN;
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
+    private int bulkConcurrency = DEFAULT_BULK_CONCURRENCY;
+    private volatile RestWriteBehindQueue writeBehindQueue;
+    private volatile RestEntityCache entityCache;
+    private volatile ScheduledFuture<?> apiKeyRenewal;
+    private Long scheduledApiKeyExpiry;
+    private final ReentrantLock authenticationLock = new ReentrantLock();
+    // Transport created by the builder, closed along with the session
+    private Closeable ownedTransport;
 
     public RestSession(Class<R> restRootObjClass) {
         this.restRootObjClass = restRootObjClass;
     }
 
+    /**
+     * @return a builder creating a session without any Spring context
+     */
+    public static <R extends RestRootObject> Builder<R> builder(Class<R> restRootObjClass) {
+        return new Builder<R>(restRootObjClass);
+    }
+
+    public RestClientService getRestClientService() {
+        return restClientService;
+    }
+
+    public void setRestClientService(RestClientService restClientService) {
+        this.restClientService = restClientService;
+    }
+
     public String getUsername() {
         return username;
     }
 
     public void setImpersonationUsername(String username) {
         this.impersonationUsername = username;
+        requestTemplate = null;
     }
 
     public void setImpersonationEnterprise(String enterprise) {
         this.impersonationEnterprise = enterprise;
+        requestTemplate = null;
     }
 
     public void setUsername(String username) {
         this.username = username;
+        requestTemplate = null;
     }
 
     public String getPassword() {
@@ -106,6 +165,7 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     public void setEnterprise(String enterprise) {
         this.enterprise = enterprise;
+        requestTemplate = null;
     }
 
     public String getApiUrl() {
@@ -114,6 +174,7 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     public void setApiUrl(String apiUrl) {
         this.apiUrl = apiUrl;
+        requestTemplate = null;
     }
 
     public String getApiPrefix() {
@@ -122,6 +183,7 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     public void setApiPrefix(String apiPrefix) {
         this.apiPrefix = apiPrefix;
+        requestTemplate = null;
     }
 
     public String getCertificate() {
@@ -146,10 +208,92 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     public void setVersion(double version) {
         this.version = version;
+        requestTemplate = null;
+    }
+
+    /**
+     * @return the executor running the background requests of the session,
+     *         e.g. page prefetching, shared by default between all sessions
+     */
+    public Executor getExecutor() {
+        return (executor != null) ? executor : DefaultExecutorHolder.executor;
+    }
+
+    /**
+     * Sets the executor running the background requests of the session. It
+     * may be bounded: operations spreading their requests over it, such as
+     * chunked bulk operations, also send requests from the calling thread and
+     * never wait for a task still queued.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of objects sent in one bulk request, bulk
+     * operations on more objects being split into several requests. Zero
+     * disables the splitting.
+     */
+    public void setBulkChunkSize(int bulkChunkSize) {
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of chunks of a bulk operation sent concurrently.
+     */
+    public void setBulkConcurrency(int bulkConcurrency) {
+        this.bulkConcurrency = bulkConcurrency;
+    }
+
+    public RestEntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * Sets the cache serving the fetches of objects by ID, filled with the
+     * objects fetched, created and modified through the session. A cache
+     * holds what the session's user is allowed to see and must not be shared
+     * between sessions of different users. A
+     * {@link net.nuagenetworks.bambou.cache.RestEntityCachePushListener}
+     * registered on the session's push center keeps it up to date.
+     */
+    public void setEntityCache(RestEntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /**
+     * @return how long before its expiry the API key gets renewed in the
+     *         background, in milliseconds
+     */
+    public long getApiKeyRenewalMargin() {
+        return apiKeyRenewalMargin;
+    }
+
+    /**
+     * Sets how long before its expiry the API key gets renewed in the
+     * background, in milliseconds. A negative margin disables the renewal, the
+     * key then only gets renewed on a 401 response.
+     */
+    public void setApiKeyRenewalMargin(long apiKeyRenewalMargin) {
+        this.apiKeyRenewalMargin = apiKeyRenewalMargin;
     }
 
     protected void setApiKey(String apiKey) {
-        this.apiKey = apiKey;
+        authenticationLock.lock();
+        try {
+            this.apiKey = apiKey;
+            apiKeyGeneration++;
+        } finally {
+            authenticationLock.unlock();
+        }
     }
 
     protected static RestSession<?> getCurrentSession() {
@@ -180,9 +324,37 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     @Override
     public void reset() {
+        cancelApiKeyRenewal();
+        scheduledApiKeyExpiry = null;
         restRootObj = null;
-        apiKey = null;
+        setApiKey(null);
         currentSession.set(null);
+
+        RestEntityCache entityCache = this.entityCache;
+        if (entityCache != null) {
+            entityCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Resets the session after sending the writes still queued, and closes
+     * the transport created by the {@link Builder}, if any. A transport
+     * supplied to the builder or by the Spring context is left open.
+     */
+    @Override
+    public void close() {
+        disableWriteBehind();
+        reset();
+
+        Closeable ownedTransport = this.ownedTransport;
+        if (ownedTransport != null) {
+            this.ownedTransport = null;
+            try {
+                ownedTransport.close();
+            } catch (IOException ex) {
+                logger.warn("Cannot close REST transport", ex);
+            }
+        }
     }
 
     /**
@@ -210,6 +382,7 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
                 pushCenterJmsActiveMQ.setUser(jmsUser);
                 pushCenterJmsActiveMQ.setPassword(jmsPassword);
             }
+            pushCenterJmsActiveMQ.setJsonCodec(restClientService.getJsonCodec());
             pushCenter = pushCenterJmsActiveMQ;
         } else if (pushCenterType == RestPushCenterType.JMS_NO_JNDI) {
             RestPushCenterJmsDirectActiveMQ pushCenterJmsActiveMQ = new RestPushCenterJmsDirectActiveMQ();
@@ -219,6 +392,7 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
                 pushCenterJmsActiveMQ.setUser(jmsUser);
                 pushCenterJmsActiveMQ.setPassword(jmsPassword);
             }
+            pushCenterJmsActiveMQ.setJsonCodec(restClientService.getJsonCodec());
             pushCenter = pushCenterJmsActiveMQ;
         } else {
             pushCenter = new RestPushCenterLongPoll(this);
@@ -232,35 +406,213 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     @Override
     public <T extends RestObject> BulkResponse<T> bulkSave(List<T> objList) throws RestException {
-        String params = BambouUtils.getResponseChoiceParam(1);
-   
-        ResponseEntity<BulkResponse> response = this.sendRequestWithRetry(HttpMethod.PUT, getResourceUrlForParentType(objList.get(0).getClass()), params, null, objList, BulkResponse.class);
-        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
-            return response.getBody();
-            // Success
-        } else {
-            // Error
-            throw new RestException("Response received with status code: " + response.getStatusCode());
-        }
+        final String url = getResourceUrlForParentType(objList.get(0).getClass());
+        final String params = BambouUtils.getResponseChoiceParam(1);
+
+        return sendBulkRequest(objList, chunk -> {
+            ResponseEntity<BulkResponse> response = this.sendRequestWithRetry(HttpMethod.PUT, url, params, null, chunk, BulkResponse.class);
+            invalidateCachedEntities(chunk);
+            if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
+                // Success
+                markSaved(chunk, response.getBody());
+                return response.getBody();
+            } else {
+                // Error
+                throw new RestException("Response received with status code: " + response.getStatusCode());
+            }
+        });
     }
 
     @Override
     public <T extends RestObject> BulkResponse<T> bulkDelete(List<T> objList) throws RestException {
-        String params = BambouUtils.getResponseChoiceParam(1);
-  
-        for (T item : objList) {
-            params += "&id="+item.getId();
-        } 
-        ResponseEntity<BulkResponse> response = this.sendRequestWithRetry(HttpMethod.DELETE, getResourceUrlForParentType(objList.get(0).getClass()), params, null, null, BulkResponse.class);
-        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
-            return response.getBody();
-            // Success
-        } else {
-            // Error
-            throw new RestException("Response received with status code: " + response.getStatusCode());
+        final String url = getResourceUrlForParentType(objList.get(0).getClass());
+        final String responseChoiceParam = BambouUtils.getResponseChoiceParam(1);
+
+        return sendBulkRequest(objList, chunk -> {
+            StringBuilder params = new StringBuilder(responseChoiceParam.length() + chunk.size() * 40).append(responseChoiceParam);
+            for (T item : chunk) {
+                params.append("&id=").append(item.getId());
+            }
+
+            ResponseEntity<BulkResponse> response = this.sendRequestWithRetry(HttpMethod.DELETE, url, params.toString(), null, null, BulkResponse.class);
+            invalidateCachedEntities(chunk);
+            if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
+                return response.getBody();
+                // Success
+            } else {
+                // Error
+                throw new RestException("Response received with status code: " + response.getStatusCode());
+            }
+        });
+    }
+
+    /**
+     * Sends a bulk request for each chunk of at most
+     * {@link #getBulkChunkSize()} objects of the list, at most
+     * {@link #getBulkConcurrency()} at a time from the calling thread and the
+     * session executor, and
+     * merges the chunk responses into one. Item indexes of the merged response
+     * refer to positions in the whole list.
+     * <p>
+     * A chunk whose request fails does not stop the other chunks: its items
+     * are reported as failed in the merged response, with the HTTP status of
+     * the error when there is one. The error is only thrown when every chunk
+     * failed.
+     */
+    protected <T extends RestObject> BulkResponse<T> sendBulkRequest(final List<T> objList, final BulkRequest<T> request) throws RestException {
+        final int chunkSize = (bulkChunkSize > 0) ? bulkChunkSize : Math.max(objList.size(), 1);
+        final int chunkCount = (objList.size() + chunkSize - 1) / chunkSize;
+        if (chunkCount <= 1) {
+            return request.send(objList);
+        }
+
+        final List<BulkResponse<T>> chunkResponses = new ArrayList<BulkResponse<T>>(Collections.<BulkResponse<T>> nCopies(chunkCount, null));
+        final RestException[] chunkErrors = new RestException[chunkCount];
+
+        // Failed chunks are reported in the merged response, so the task
+        // never stops the others
+        int concurrency = Math.min(Math.max(bulkConcurrency, 1), chunkCount);
+        runConcurrently(chunkCount, concurrency, chunk -> {
+            List<T> chunkObjs = objList.subList(chunk * chunkSize, Math.min((chunk + 1) * chunkSize, objList.size()));
+            try {
+                // Distinct slots, published to the caller by the latch
+                chunkResponses.set(chunk, request.send(chunkObjs));
+            } catch (RestException ex) {
+                // Error
+                logger.warn("Bulk request failed for chunk " + chunk + " of " + chunkObjs.size() + " objects", ex);
+                chunkErrors[chunk] = ex;
+            }
+        });
+
+        RestException firstError = null;
+        int failedChunks = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            RestException error = chunkErrors[chunk];
+            if (error != null) {
+                firstError = (firstError != null) ? firstError : error;
+                failedChunks++;
+
+                int chunkLength = Math.min((chunk + 1) * chunkSize, objList.size()) - chunk * chunkSize;
+                chunkResponses.set(chunk, BulkResponse.<T> failure(chunkLength, getErrorStatus(error), error.getMessage()));
+            }
+        }
+
+        if (failedChunks == chunkCount) {
+            throw firstError;
+        }
+
+        return BulkResponse.merge(chunkResponses, chunkSize);
+    }
+
+    private static String getErrorStatus(RestException error) {
+        if (error instanceof RestStatusCodeException && ((RestStatusCodeException) error).getStatusCode() != null) {
+            return String.valueOf(((RestStatusCodeException) error).getStatusCode().value());
+        }
+
+        return String.valueOf(HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
+
+    private void markSaved(List<? extends RestObject> restObjs, BulkResponse<?> response) throws RestException {
+        if (response == null || response.getResponse() == null) {
+            return;
+        }
+
+        // Subsequent saves of the objects saved only send their modifications
+        for (BulkResponse.ResponseItem<?> item : response.getResponse()) {
+            int index = item.getIndex();
+            if (item.getStatus() != null && item.getStatus().startsWith("2") && index >= 0 && index < restObjs.size()) {
+                restObjs.get(index).markClean();
+            }
         }
     }
 
+    private void invalidateCachedEntities(List<? extends RestObject> restObjs) {
+        RestEntityCache entityCache = this.entityCache;
+        if (entityCache != null) {
+            for (RestObject restObj : restObjs) {
+                if (restObj.getId() != null) {
+                    entityCache.invalidate(restObj.getRestName(), restObj.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks numbered from 0 to <code>taskCount - 1</code>, at most
+     * <code>concurrency</code> at a time: the calling thread runs tasks itself
+     * while up to <code>concurrency - 1</code> workers help on the session
+     * executor. Only the tasks already taken by a worker are waited for, so
+     * that the call completes even when the executor is saturated, e.g. by
+     * the task that called it. The first task failing stops the others and
+     * its error is thrown.
+     */
+    void runConcurrently(final int taskCount, int concurrency, final IndexedTask task) throws RestException {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(taskCount);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        // Each worker runs tasks until all of them are taken
+        Runnable worker = () -> {
+            for (int index = nextIndex.getAndIncrement(); index < taskCount; index = nextIndex.getAndIncrement()) {
+                try {
+                    task.run(index);
+                } catch (RestException | RuntimeException | Error ex) {
+                    // Stop the other workers, releasing the tasks left
+                    failure.compareAndSet(null, ex);
+                    for (int untaken = nextIndex.getAndSet(taskCount); untaken < taskCount; untaken++) {
+                        completed.countDown();
+                    }
+                } finally {
+                    completed.countDown();
+                }
+            }
+        };
+
+        for (int i = 1; i < concurrency; i++) {
+            try {
+                getExecutor().execute(wrap(worker));
+            } catch (RejectedExecutionException ex) {
+                // The calling thread runs the tasks left
+                break;
+            }
+        }
+        worker.run();
+
+        try {
+            completed.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RestException(ex);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof RestException) {
+            throw (RestException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw (Error) error;
+        }
+    }
+
+    /**
+     * Task run by {@link RestSession#runConcurrently(int, int, IndexedTask)}
+     * for each index.
+     */
+    interface IndexedTask {
+
+        void run(int index) throws RestException;
+    }
+
+    /**
+     * Request sent by {@link RestSession#sendBulkRequest(List, BulkRequest)}
+     * for each chunk of a bulk operation.
+     */
+    protected interface BulkRequest<T extends RestObject> {
+
+        BulkResponse<T> send(List<T> chunk) throws RestException;
+    }
+
     @Override
     public <T extends RestObject> BulkResponse<T> createChildren(RestObject parent, List<T> children) throws RestException {
         return parent.createChildren(this,children);
@@ -341,6 +693,178 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
         restObj.assign(this, childRestObjs, responseChoice, commit);
     }
 
+    /**
+     * Runs the task on the session executor, with this session as the current
+     * session of the executing thread.
+     */
+    public <V> RestFuture<V> submit(Callable<V> task) {
+        return RestFuture.submit(wrap(task), getExecutor());
+    }
+
+    /**
+     * Routes {@link #saveAsync(RestObject)},
+     * {@link #createChildAsync(RestObject, RestObject)} and
+     * {@link #deleteAsync(RestObject)} through a write-behind queue, which
+     * coalesces them into bulk requests sent at most <code>window</code> after
+     * the first write of a batch, or as soon as <code>maxBatchSize</code>
+     * writes are queued.
+     *
+     * @return the queue, also usable directly to get the bulk response items
+     */
+    public synchronized RestWriteBehindQueue enableWriteBehind(long window, TimeUnit unit, int maxBatchSize) {
+        disableWriteBehind();
+        writeBehindQueue = new RestWriteBehindQueue(this, window, unit, maxBatchSize);
+        return writeBehindQueue;
+    }
+
+    /**
+     * Sends the writes still queued and reverts to one request per write.
+     */
+    public synchronized void disableWriteBehind() {
+        RestWriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+        if (writeBehindQueue != null) {
+            this.writeBehindQueue = null;
+            writeBehindQueue.close();
+        }
+    }
+
+    public RestWriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
+    private static RestFuture<Void> discardResult(final RestFuture<?> future) {
+        final RestFuture<Void> result = new RestFuture<Void>();
+        future.whenComplete((item, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(null);
+            }
+        });
+
+        // Cancelling the result drops the write if it is still queued
+        result.whenComplete((nothing, ex) -> {
+            if (result.isCancelled()) {
+                future.cancel(false);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Makes this session the current session of the calling thread until the
+     * returned scope is closed, at which point the previous one is restored.
+     */
+    public Scope bind() {
+        final RestSession<?> previousSession = currentSession.get();
+        currentSession.set(this);
+        return () -> currentSession.set(previousSession);
+    }
+
+    /**
+     * @return a task running the specified one with this session as current
+     *         session, whatever thread it runs on
+     */
+    public Runnable wrap(final Runnable task) {
+        return () -> {
+            Scope scope = bind();
+            try {
+                task.run();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * @return a task running the specified one with this session as current
+     *         session, whatever thread it runs on
+     */
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        return () -> {
+            Scope scope = bind();
+            try {
+                return task.call();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * @return an executor running the tasks with the session that was current
+     *         in the submitting thread, if any
+     */
+    public static Executor propagating(final Executor executor) {
+        return task -> {
+            RestSession<?> session = currentSession.get();
+            executor.execute((session != null) ? session.wrap(task) : task);
+        };
+    }
+
+    @Override
+    public RestFuture<Void> fetchAsync(final RestObject restObj) {
+        return submit(() -> {
+            fetch(restObj);
+            return null;
+        });
+    }
+
+    @Override
+    public RestFuture<Void> saveAsync(final RestObject restObj) {
+        RestWriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+        if (writeBehindQueue != null) {
+            return discardResult(writeBehindQueue.save(restObj));
+        }
+
+        return submit(() -> {
+            save(restObj);
+            return null;
+        });
+    }
+
+    @Override
+    public RestFuture<Void> deleteAsync(final RestObject restObj) {
+        RestWriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+        if (writeBehindQueue != null) {
+            return discardResult(writeBehindQueue.delete(restObj));
+        }
+
+        return submit(() -> {
+            delete(restObj);
+            return null;
+        });
+    }
+
+    @Override
+    public RestFuture<Void> createChildAsync(final RestObject restObj, final RestObject childRestObj) {
+        RestWriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+        if (writeBehindQueue != null) {
+            return discardResult(writeBehindQueue.createChild(restObj, childRestObj));
+        }
+
+        return submit(() -> {
+            createChild(restObj, childRestObj);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends RestObject> RestFuture<List<T>> getAsync(final RestFetcher<T> fetcher) {
+        return submit(() -> get(fetcher));
+    }
+
+    @Override
+    public <T extends RestObject> RestFuture<List<T>> fetchAsync(final RestFetcher<T> fetcher) {
+        return submit(() -> fetch(fetcher));
+    }
+
+    @Override
+    public <T extends RestObject> RestFuture<Integer> countAsync(final RestFetcher<T> fetcher) {
+        return submit(() -> count(fetcher));
+    }
+
     @Override
     public <T extends RestObject> List<T> get(RestFetcher<T> fetcher) throws RestException {
         return get(fetcher, null, null, null, null, null, null, true);
@@ -387,78 +911,216 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
 
     protected <T, U> ResponseEntity<T> sendRequestWithRetry(HttpMethod method, String url, String params, HttpHeaders headers, U requestObj,
             Class<T> responseType) throws RestException {
+        return sendRequestWithRetry(method, url, params, headers, requestObj, responseType, null);
+    }
+
+    /**
+     * Sends a request conditionally on the specified validators, see
+     * {@link RestClientService#sendRequest(HttpMethod, String, HttpHeaders, Object, Class, ResponseValidators)}.
+     */
+    protected <T, U> ResponseEntity<T> sendRequestWithRetry(HttpMethod method, String url, String params, HttpHeaders headers, U requestObj,
+            Class<T> responseType, ResponseValidators validators) throws RestException {
+        url = appendParams(url, params);
+        long generation = apiKeyGeneration;
+
+        try {
+            return restClientService.sendRequest(method, url, prepareHeaders(headers), requestObj, responseType, validators);
+        } catch (RestStatusCodeException ex) {
+            reauthenticate(ex, generation);
+            return restClientService.sendRequest(method, url, prepareHeaders(headers), requestObj, responseType, validators);
+        }
+    }
+
+    protected <T> ResponseEntity<Void> sendStreamingRequestWithRetry(HttpMethod method, String url, String params, HttpHeaders headers,
+            Class<T> elementType, Consumer<? super T> consumer) throws RestException {
+        url = appendParams(url, params);
+        long generation = apiKeyGeneration;
+
+        try {
+            return restClientService.sendStreamingRequest(method, url, prepareHeaders(headers), elementType, consumer);
+        } catch (RestStatusCodeException ex) {
+            // Error statuses are raised before any element is consumed
+            reauthenticate(ex, generation);
+            return restClientService.sendStreamingRequest(method, url, prepareHeaders(headers), elementType, consumer);
+        }
+    }
+
+    private String appendParams(String url, String params) {
         if (params != null) {
             url += (url.indexOf('?') >= 0) ? ";" + params : "?" + params;
         }
 
+        return url;
+    }
+
+    /**
+     * @return the shared read-only session headers when the request has no
+     *         headers of its own, or else the request headers with the session
+     *         headers set over them
+     */
+    private HttpHeaders prepareHeaders(HttpHeaders headers) {
+        String apiKey = this.apiKey;
+        HttpHeaders sessionHeaders = getRequestTemplate().getHeaders((apiKey != null) ? apiKey : password);
         if (headers == null) {
-            headers = new HttpHeaders();
+            return sessionHeaders;
         }
 
-        if (this.impersonationUsername != null && this.impersonationEnterprise != null) {
-            headers.set(IMPERSONATION_HEADER, this.impersonationUsername+"@"+this.impersonationEnterprise);
+        headers.putAll(sessionHeaders);
+        return headers;
+    }
+
+    private RestRequestTemplate getRequestTemplate() {
+        RestRequestTemplate requestTemplate = this.requestTemplate;
+        if (requestTemplate == null) {
+            requestTemplate = new RestRequestTemplate(username, enterprise, impersonationUsername, impersonationEnterprise, apiUrl, apiPrefix, version);
+            this.requestTemplate = requestTemplate;
+        }
+
+        return requestTemplate;
+    }
+
+    private void reauthenticate(RestStatusCodeException ex, long generation) throws RestException {
+        if (ex.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+            throw ex;
         }
 
-        headers.set(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE_JSON);
-        headers.set(ORGANIZATION_HEADER, getEnterprise());
-        headers.set(HttpHeaders.AUTHORIZATION, getAuthenticationHeader());
+        // Debug
+        logger.info("HTTP 401/Unauthorized response received");
 
-        logger.info(url);
+        // Re-authenticate the session so that the same request can be sent
+        // again. A new API key might get issued as a result
+        renewApiKey(generation);
+    }
+
+    /**
+     * Logs in again unless the API key was already renewed since the specified
+     * generation, in which case the caller only has to replay its request with
+     * the new key. Concurrent callers wait for the login in progress, so that
+     * a burst of 401 responses results in a single login.
+     */
+    private void renewApiKey(long generation) throws RestException {
+        authenticationLock.lock();
         try {
-            return restClientService.sendRequest(method, url, headers, requestObj, responseType);
-        } catch (RestStatusCodeException ex) {
-            if (ex.getStatusCode() == HttpStatus.UNAUTHORIZED) {
+            if (apiKeyGeneration != generation) {
                 // Debug
-                logger.info("HTTP 401/Unauthorized response received");
-
-                // Make sure we are not already re-authenticating
-                // in order to avoid infinite recursion
-                if (!(method == HttpMethod.GET && url.equals(restRootObj.getResourceUrl(this)))) {
-                    // Re-authenticate the session and try to send the same
-                    // request again. A new API key might get issued as a result
-                    reset();
-                    authenticate();
-        	    currentSession.set(this);
-
-                    // Update authorization header with new API key
-                    headers.set(HttpHeaders.AUTHORIZATION, getAuthenticationHeader());
-
-                    return restClientService.sendRequest(method, url, headers, requestObj, responseType);
-                } else {
-                    throw ex;
-                }
-            } else {
-                throw ex;
+                logger.debug("API key already renewed by a concurrent request");
+                return;
+            }
+
+            // The current root object and API key stay in place for the
+            // requests in flight until the new ones are available
+            R rootObj = login();
+            restRootObj = rootObj;
+            setApiKey(rootObj.getApiKey());
+            scheduleApiKeyRenewal();
+        } finally {
+            authenticationLock.unlock();
+        }
+    }
+
+    private void scheduleApiKeyRenewal() {
+        cancelApiKeyRenewal();
+
+        Long expiry = restRootObj.getApiKeyExpiry();
+        if (expiry == null || apiKeyRenewalMargin < 0) {
+            return;
+        }
+
+        long lifetime = expiry - System.currentTimeMillis();
+        if (lifetime <= 0) {
+            return;
+        }
+
+        long delay;
+        if (scheduledApiKeyExpiry == null || expiry > scheduledApiKeyExpiry) {
+            // Renew ahead of the margin, or halfway through keys issued with a
+            // shorter lifetime, so that the renewal never loops
+            delay = Math.max(lifetime - apiKeyRenewalMargin, lifetime / 2);
+        } else {
+            // The renewal did not extend the key: retrying sooner would not
+            // either, so the next attempt waits at least the minimum interval
+            delay = Math.max(lifetime - apiKeyRenewalMargin, MIN_API_KEY_RENEWAL_INTERVAL);
+            if (delay >= lifetime) {
+                // The key then gets renewed on the next 401 response
+                return;
+            }
+        }
+
+        scheduledApiKeyExpiry = expiry;
+        final long generation = apiKeyGeneration;
+        apiKeyRenewal = BambouExecutors.getScheduler().schedule(() -> getExecutor().execute(() -> {
+            try {
+                renewApiKey(generation);
+
+                // Debug
+                logger.debug("Renewed API key of username: " + username + " in enterprise: " + enterprise);
+            } catch (RestException ex) {
+                // Error: the key still gets renewed on the next 401 response
+                logger.warn("Cannot renew API key ahead of its expiry", ex);
             }
+        }), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelApiKeyRenewal() {
+        ScheduledFuture<?> apiKeyRenewal = this.apiKeyRenewal;
+        if (apiKeyRenewal != null) {
+            apiKeyRenewal.cancel(false);
+            this.apiKeyRenewal = null;
         }
     }
 
     protected String getRestBaseUrl() {
-        int roundedVersion = (int)version;
-        return String.format("%s/%s/v%s", apiUrl, apiPrefix, String.valueOf(roundedVersion));
+        return getRequestTemplate().getBaseUrl();
     }
 
     protected String getResourceUrlForParentType(Class<?> parentRestObjClass) {
-        RestEntity annotation = parentRestObjClass.getAnnotation(RestEntity.class);
-        String parentResourceName = annotation.resourceName();
+        return getRequestTemplate().getResourceUrl(parentRestObjClass);
+    }
 
-        return String.format("%s/%s", getRestBaseUrl(), parentResourceName);
+    private void authenticate() throws RestException {
+        // Not synchronized, which would pin virtual threads
+        authenticationLock.lock();
+        try {
+            doAuthenticate();
+        } finally {
+            authenticationLock.unlock();
+        }
     }
 
-    private synchronized void authenticate() throws RestException {
-        // Create the root object if needed
+    private void doAuthenticate() throws RestException {
+        // Log in if needed
         if (restRootObj == null) {
-            restRootObj = createRootObject();
-            fetch(restRootObj);
+            restRootObj = login();
         }
 
         // Copy the API key from the root object
-        apiKey = restRootObj.getApiKey();
+        setApiKey(restRootObj.getApiKey());
+        scheduleApiKeyRenewal();
 
         // Debug
         logger.debug("Started session with username: " + username + " in enterprise: " + enterprise);
     }
 
+    private R login() throws RestException {
+        R rootObj = createRootObject();
+
+        // Always authenticate with the password, the API key being renewed
+        // might still be in use by other requests
+        HttpHeaders headers = getRequestTemplate().getHeaders(password);
+
+        ResponseEntity<R[]> response = restClientService.sendRequest(HttpMethod.GET, rootObj.getResourceUrl(this), headers, null,
+                BambouUtils.getArrayClass(rootObj));
+        if (response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL && response.getBody().length == 1) {
+            // Success
+            BambouUtils.copyJsonProperties(response.getBody()[0], rootObj);
+        } else {
+            // Error
+            throw new RestException("Response received with status code: " + response.getStatusCode());
+        }
+
+        return rootObj;
+    }
+
     private R createRootObject() throws RestException {
         try {
             return restRootObjClass.newInstance();
@@ -467,18 +1129,138 @@ public class RestSession<R extends RestRootObject> implements RestSessionOperati
         }
     }
 
-    private String getAuthenticationHeader() {
-        if (apiKey != null) {
-            return String.format("XREST %s", Base64.encodeBase64String(String.format("%s:%s", username, apiKey).getBytes()));
-        } else {
-            return String.format("XREST %s", Base64.encodeBase64String(String.format("%s:%s", username, password).getBytes()));
-        }
-    }
-
     @Override
     public String toString() {
         return "RestSession [restClientService=" + restClientService + ", username=" + username + ", password=" + password + ", enterprise=" + enterprise
                 + ", apiUrl=" + apiUrl + ", apiPrefix=" + apiPrefix + ", certificate=" + certificate + ", privateKey=" + privateKey + ", version=" + version
                 + ", apiKey=" + apiKey + ", restRootObjClass=" + restRootObjClass + ", restRootObj=" + restRootObj + "]";
     }
+
+    /**
+     * Creates sessions wired directly to their client service and transport,
+     * as an alternative to the Spring context of {@link net.nuagenetworks.bambou.spring.SpringConfig}, whose
+     * classpath scanning is costly for short-lived processes.
+     */
+    public static class Builder<R extends RestRootObject> {
+
+        private final RestSession<R> session;
+        private RestClientService restClientService;
+        private RestOperations restOperations;
+        private RestClientTemplate.Transport transport = RestClientTemplate.Transport.HTTP_1_1;
+
+        private Builder(Class<R> restRootObjClass) {
+            this.session = new RestSession<R>(restRootObjClass);
+        }
+
+        public Builder<R> username(String username) {
+            session.setUsername(username);
+            return this;
+        }
+
+        public Builder<R> password(String password) {
+            session.setPassword(password);
+            return this;
+        }
+
+        public Builder<R> enterprise(String enterprise) {
+            session.setEnterprise(enterprise);
+            return this;
+        }
+
+        public Builder<R> impersonation(String username, String enterprise) {
+            session.setImpersonationUsername(username);
+            session.setImpersonationEnterprise(enterprise);
+            return this;
+        }
+
+        public Builder<R> apiUrl(String apiUrl) {
+            session.setApiUrl(apiUrl);
+            return this;
+        }
+
+        public Builder<R> apiPrefix(String apiPrefix) {
+            session.setApiPrefix(apiPrefix);
+            return this;
+        }
+
+        public Builder<R> version(double version) {
+            session.setVersion(version);
+            return this;
+        }
+
+        public Builder<R> certificate(String certificate, String privateKey) {
+            session.setCertificate(certificate);
+            session.setPrivateKey(privateKey);
+            return this;
+        }
+
+        public Builder<R> executor(Executor executor) {
+            session.setExecutor(executor);
+            return this;
+        }
+
+        public Builder<R> apiKeyRenewalMargin(long apiKeyRenewalMargin) {
+            session.setApiKeyRenewalMargin(apiKeyRenewalMargin);
+            return this;
+        }
+
+        public Builder<R> bulkChunkSize(int bulkChunkSize) {
+            session.setBulkChunkSize(bulkChunkSize);
+            return this;
+        }
+
+        public Builder<R> bulkConcurrency(int bulkConcurrency) {
+            session.setBulkConcurrency(bulkConcurrency);
+            return this;
+        }
+
+        public Builder<R> entityCache(RestEntityCache entityCache) {
+            session.setEntityCache(entityCache);
+            return this;
+        }
+
+        /**
+         * Sets the transport of the {@link RestClientTemplate} created when
+         * neither a client service nor REST operations are specified.
+         */
+        public Builder<R> transport(RestClientTemplate.Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder<R> restOperations(RestOperations restOperations) {
+            this.restOperations = restOperations;
+            return this;
+        }
+
+        /**
+         * Sets the client service, typically to share it and its connections
+         * between sessions.
+         */
+        public Builder<R> restClientService(RestClientService restClientService) {
+            this.restClientService = restClientService;
+            return this;
+        }
+
+        public RestSession<R> build() {
+            RestClientService restClientService = this.restClientService;
+            if (restClientService == null) {
+                RestOperations restOperations = this.restOperations;
+                if (restOperations == null) {
+                    RestClientTemplate restClientTemplate = new RestClientTemplate(transport);
+                    session.ownedTransport = restClientTemplate;
+                    restOperations = restClientTemplate;
+                }
+                restClientService = new RestClientService(restOperations);
+            }
+
+            session.setRestClientService(restClientService);
+            return session;
+        }
+    }
+
+    private static class DefaultExecutorHolder {
+
+        private static final ExecutorService executor = BambouExecutors.newDaemonThreadPool("bambou-worker-");
+    }
 }
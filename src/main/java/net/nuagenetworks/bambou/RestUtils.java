@@ -1,27 +1,22 @@
 package net.nuagenetworks.bambou;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.nuagenetworks.bambou.util.BambouUtils;
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 public class RestUtils {
-	private static final ObjectMapper mapper = new ObjectMapper();
     public static <T extends RestObject> T createRestObjectWithContent(Class<T> restObjectClass, JsonNode jsonNode) throws RestException {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.treeToValue(jsonNode, restObjectClass);
-        } catch (JsonProcessingException ex) {
-            throw new RestException(ex);
-        }
+        return getJsonCodec().treeToValue(jsonNode, restObjectClass);
     }
 
     public static String toString(Object content) throws RestException {
-        return BambouUtils.toString(content);
+        return BambouUtils.toString(content, getJsonCodec());
     }
     
     public static JsonNode toJson(String content) throws RestException {
+        ObjectMapper mapper = getJsonCodec().getObjectMapper();
     	try {
 			return mapper.readTree(content);
 		} catch (Exception e) {
@@ -34,4 +29,13 @@ public class RestUtils {
 			
 		}
     }
+
+    /**
+     * @return the codec of the session bound to the current thread, or the
+     *         shared codec outside of a session
+     */
+    private static JsonCodec getJsonCodec() {
+        RestSession<?> session = RestSession.getCurrentSession();
+        return (session != null && session.getRestClientService() != null) ? session.getRestClientService().getJsonCodec() : JsonCodec.getSharedInstance();
+    }
 }
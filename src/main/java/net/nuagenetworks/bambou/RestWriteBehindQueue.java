@@ -0,0 +1,341 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.nuagenetworks.bambou.BulkResponse.ResponseItem;
+import net.nuagenetworks.bambou.util.BambouExecutors;
+
+/**
+ * Write-behind queue coalescing individual saves, creations and deletions
+ * into bulk requests. Writes are grouped by operation, parent and entity
+ * class, and a group is sent through the bulk operations of the session once
+ * it reaches the maximum batch size or once the batching window has elapsed
+ * since its first write. Repeated saves or deletions of the same object are
+ * sent once.
+ * <p>
+ * Each write returns a future completed with the matching item of the bulk
+ * response, or failed with a {@link RestException} if the item or the whole
+ * request failed.
+ */
+public class RestWriteBehindQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestWriteBehindQueue.class);
+
+    private enum Operation {
+        SAVE, CREATE, DELETE
+    }
+
+    private final RestSession<?> session;
+    private final long window;
+    private final int maxBatchSize;
+    private final Map<BatchKey, Batch> batches = new LinkedHashMap<BatchKey, Batch>();
+    // Batches handed to the session executor and not sent yet
+    private final Set<Batch> dispatchedBatches = new HashSet<Batch>();
+    private boolean closed;
+
+    RestWriteBehindQueue(RestSession<?> session, long window, TimeUnit unit, int maxBatchSize) {
+        this.session = session;
+        this.window = unit.toMillis(window);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+    }
+
+    public <T extends RestObject> RestFuture<ResponseItem<T>> save(T restObj) {
+        return enqueue(Operation.SAVE, null, restObj);
+    }
+
+    public <T extends RestObject> RestFuture<ResponseItem<T>> createChild(RestObject parent, T childRestObj) {
+        return enqueue(Operation.CREATE, parent, childRestObj);
+    }
+
+    public <T extends RestObject> RestFuture<ResponseItem<T>> delete(T restObj) {
+        return enqueue(Operation.DELETE, null, restObj);
+    }
+
+    /**
+     * Sends all the queued writes and waits for their completion, including
+     * the batches already handed to the session executor.
+     */
+    public void flush() {
+        List<Batch> pendingBatches;
+        List<Batch> sendingBatches;
+        synchronized (this) {
+            pendingBatches = new ArrayList<Batch>(batches.values());
+            batches.clear();
+            sendingBatches = new ArrayList<Batch>(dispatchedBatches);
+        }
+
+        for (Batch batch : pendingBatches) {
+            batch.timer.cancel(false);
+            batch.send();
+        }
+
+        for (Batch batch : sendingBatches) {
+            batch.sent.join();
+        }
+    }
+
+    /**
+     * Sends the queued writes and rejects further ones.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        flush();
+    }
+
+    private <T extends RestObject> RestFuture<ResponseItem<T>> enqueue(Operation operation, RestObject parent, T restObj) {
+        RestFuture<ResponseItem<T>> future = new RestFuture<ResponseItem<T>>();
+        Batch fullBatch = null;
+
+        synchronized (this) {
+            if (closed) {
+                future.completeExceptionally(new RestException("Write-behind queue closed"));
+                return future;
+            }
+
+            BatchKey key = new BatchKey(operation, parent, restObj.getClass());
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                batch = new Batch(key);
+                batches.put(key, batch);
+                scheduleFlush(batch);
+            }
+
+            batch.add(restObj, future);
+            if (batch.size() >= maxBatchSize) {
+                batches.remove(key);
+                dispatchedBatches.add(batch);
+                fullBatch = batch;
+            }
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+
+        return future;
+    }
+
+    private void scheduleFlush(final Batch batch) {
+        batch.timer = BambouExecutors.getScheduler().schedule(() -> {
+            synchronized (this) {
+                if (batches.get(batch.key) != batch) {
+                    // Already sent
+                    return;
+                }
+                batches.remove(batch.key);
+                dispatchedBatches.add(batch);
+            }
+
+            dispatch(batch);
+        }, window, TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(final Batch batch) {
+        batch.timer.cancel(false);
+        try {
+            session.getExecutor().execute(session.wrap((Runnable) batch::send));
+        } catch (RejectedExecutionException ex) {
+            // Send it on the calling thread rather than drop the writes
+            batch.send();
+        }
+    }
+
+    private static final class BatchKey {
+
+        private final Operation operation;
+        private final RestObject parent;
+        private final Class<?> restObjClass;
+
+        private BatchKey(Operation operation, RestObject parent, Class<?> restObjClass) {
+            this.operation = operation;
+            this.parent = parent;
+            this.restObjClass = restObjClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, (parent != null) ? System.identityHashCode(parent) : 0, restObjClass);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+
+            // Parents are compared by identity: created children are added
+            // to the parent instance
+            BatchKey other = (BatchKey) obj;
+            return operation == other.operation && parent == other.parent && restObjClass == other.restObjClass;
+        }
+    }
+
+    private final class Batch {
+
+        private final BatchKey key;
+        // Saves and deletions of the same object are coalesced, creations
+        // are all kept apart
+        private final Map<Object, Write> writes;
+        private final CompletableFuture<Void> sent = new CompletableFuture<Void>();
+        private ScheduledFuture<?> timer;
+
+        private Batch(BatchKey key) {
+            this.key = key;
+            this.writes = new LinkedHashMap<Object, Write>();
+        }
+
+        private int size() {
+            return writes.size();
+        }
+
+        private void add(RestObject restObj, RestFuture<?> future) {
+            Object writeKey = (key.operation != Operation.CREATE && restObj.getId() != null) ? restObj : new Object();
+            Write write = writes.get(writeKey);
+            if (write == null) {
+                write = new Write();
+                writes.put(writeKey, write);
+            }
+
+            // The latest state of the object is the one sent
+            write.restObj = restObj;
+            write.futures.add(future);
+        }
+
+        private void send() {
+            try {
+                sendWrites();
+            } finally {
+                synchronized (RestWriteBehindQueue.this) {
+                    dispatchedBatches.remove(this);
+                }
+                sent.complete(null);
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private void sendWrites() {
+            List<Write> pendingWrites = new ArrayList<Write>(writes.size());
+            for (Write write : writes.values()) {
+                if (!write.isCancelled()) {
+                    pendingWrites.add(write);
+                }
+            }
+
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+
+            List<RestObject> restObjs = new ArrayList<RestObject>(pendingWrites.size());
+            for (Write write : pendingWrites) {
+                restObjs.add(write.restObj);
+            }
+
+            BulkResponse<RestObject> response;
+            try {
+                if (key.operation == Operation.SAVE) {
+                    response = session.bulkSave(restObjs);
+                } else if (key.operation == Operation.DELETE) {
+                    response = session.bulkDelete(restObjs);
+                } else {
+                    response = key.parent.createChildren(session, restObjs);
+                }
+            } catch (RestException | RuntimeException ex) {
+                // Error
+                logger.warn("Write-behind bulk request failed for " + restObjs.size() + " objects", ex);
+                for (Write write : pendingWrites) {
+                    write.fail(ex);
+                }
+                return;
+            }
+
+            if (response.getResponse() != null) {
+                for (ResponseItem item : response.getResponse()) {
+                    int index = item.getIndex();
+                    if (index >= 0 && index < pendingWrites.size()) {
+                        pendingWrites.get(index).complete(item);
+                    }
+                }
+            }
+
+            for (Write write : pendingWrites) {
+                write.fail(new RestException("No bulk response item for object: " + write.restObj));
+            }
+        }
+    }
+
+    private static final class Write {
+
+        private RestObject restObj;
+        private final List<RestFuture<?>> futures = new ArrayList<RestFuture<?>>(1);
+
+        private boolean isCancelled() {
+            for (RestFuture<?> future : futures) {
+                if (!future.isCancelled()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private void complete(ResponseItem<?> item) {
+            for (RestFuture future : futures) {
+                if (item.getStatus() != null && item.getStatus().startsWith("2")) {
+                    future.complete(item);
+                } else {
+                    future.completeExceptionally(new RestException("Bulk operation failed with status: " + item.getStatus()));
+                }
+            }
+        }
+
+        private void fail(Exception ex) {
+            for (RestFuture<?> future : futures) {
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.nuagenetworks.bambou.RestException;
+import net.nuagenetworks.bambou.RestStatusCodeException;
+import net.nuagenetworks.bambou.util.BambouExecutors;
+
+/**
+ * {@link RestEntityCache} bounded in size by evicting its least recently used
+ * entries, and whose entries expire after a time to live set per entity type.
+ * <p>
+ * Entities found not to exist (404) are cached as well, for a shorter time.
+ * Entries read at least a given number of times are reloaded in the
+ * background once past a ratio of their time to live, so that hot entities
+ * do not expire under their readers. Concurrent misses on the same entity
+ * share a single load.
+ */
+public class LruRestEntityCache implements RestEntityCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toNanos(1);
+    private static final long DEFAULT_NEGATIVE_TIME_TO_LIVE = TimeUnit.SECONDS.toNanos(10);
+    private static final double DEFAULT_REFRESH_AHEAD_RATIO = 0.75;
+    private static final int DEFAULT_REFRESH_AHEAD_HITS = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(LruRestEntityCache.class);
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictionCount.increment();
+                return true;
+            }
+
+            return false;
+        }
+    };
+
+    private final ConcurrentMap<Key, CompletableFuture<JsonNode>> loads = new ConcurrentHashMap<Key, CompletableFuture<JsonNode>>();
+    private final ConcurrentMap<String, Long> timesToLive = new ConcurrentHashMap<String, Long>();
+    private volatile int maximumSize;
+    private volatile long defaultTimeToLive = DEFAULT_TIME_TO_LIVE;
+    private volatile long negativeTimeToLive = DEFAULT_NEGATIVE_TIME_TO_LIVE;
+    private volatile double refreshAheadRatio = DEFAULT_REFRESH_AHEAD_RATIO;
+    private volatile int refreshAheadHits = DEFAULT_REFRESH_AHEAD_HITS;
+    private volatile Executor executor;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder negativeHitCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    public LruRestEntityCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public LruRestEntityCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (entries.size() > maximumSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Sets the time to live of the entity types without a specific one. A
+     * zero time to live disables caching.
+     */
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        this.defaultTimeToLive = unit.toNanos(timeToLive);
+    }
+
+    public void setTimeToLive(String entityType, long timeToLive, TimeUnit unit) {
+        timesToLive.put(entityType, unit.toNanos(timeToLive));
+    }
+
+    public long getTimeToLive(String entityType, TimeUnit unit) {
+        Long timeToLive = timesToLive.get(entityType);
+        return unit.convert((timeToLive != null) ? timeToLive : defaultTimeToLive, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long entities found not to exist are remembered. Zero disables
+     * the caching of 404 responses.
+     */
+    public void setNegativeTimeToLive(long timeToLive, TimeUnit unit) {
+        this.negativeTimeToLive = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Reloads the entries read at least {@code hits} times once past
+     * {@code ratio} of their time to live. A ratio outside ]0, 1[ disables
+     * the refresh.
+     */
+    public void setRefreshAhead(double ratio, int hits) {
+        this.refreshAheadRatio = ratio;
+        this.refreshAheadHits = hits;
+    }
+
+    /**
+     * @return the executor running the refreshes, shared by default between
+     *         all caches
+     */
+    public Executor getExecutor() {
+        return (executor != null) ? executor : DefaultExecutorHolder.executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public JsonNode get(String entityType, String id, Loader loader) throws RestException {
+        Key key = new Key(entityType, id);
+        long now = nanoTime();
+        boolean refresh = false;
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                expirationCount.increment();
+                entry = null;
+            }
+
+            if (entry != null) {
+                entry.hits++;
+                if (entry.refreshable && !entry.refreshing && entry.hits >= refreshAheadHits && now - entry.refreshAt >= 0) {
+                    entry.refreshing = true;
+                    refresh = true;
+                }
+            }
+        }
+
+        if (entry == null) {
+            missCount.increment();
+            return load(key, loader);
+        }
+
+        hitCount.increment();
+        if (refresh) {
+            refresh(key, entry, loader);
+        }
+
+        if (entry.value == null) {
+            negativeHitCount.increment();
+            throw new RestStatusCodeException(HttpStatus.NOT_FOUND);
+        }
+
+        return entry.value;
+    }
+
+    @Override
+    public JsonNode getIfPresent(String entityType, String id) {
+        Key key = new Key(entityType, id);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return (entry != null && nanoTime() - entry.expiresAt < 0) ? entry.value : null;
+        }
+    }
+
+    @Override
+    public void put(String entityType, String id, JsonNode properties) {
+        Key key = new Key(entityType, id);
+        synchronized (entries) {
+            // Supersede any load in progress
+            loads.remove(key);
+            store(key, properties);
+        }
+    }
+
+    @Override
+    public void invalidate(String entityType, String id) {
+        Key key = new Key(entityType, id);
+        synchronized (entries) {
+            loads.remove(key);
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            loads.clear();
+            entries.clear();
+        }
+    }
+
+    @Override
+    public RestEntityCacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        return new RestEntityCacheStats(hitCount.sum(), missCount.sum(), negativeHitCount.sum(), evictionCount.sum(), expirationCount.sum(),
+                refreshCount.sum(), loadFailureCount.sum(), size);
+    }
+
+    /**
+     * @return the current time in nanoseconds, as per {@link System#nanoTime()}
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private JsonNode load(Key key, Loader loader) throws RestException {
+        CompletableFuture<JsonNode> load = new CompletableFuture<JsonNode>();
+        CompletableFuture<JsonNode> existingLoad = loads.putIfAbsent(key, load);
+        if (existingLoad != null) {
+            return await(existingLoad);
+        }
+
+        try {
+            JsonNode value = loader.load();
+            storeLoaded(key, load, value);
+            load.complete(value);
+            return value;
+        } catch (RestException ex) {
+            if (isNotFound(ex)) {
+                storeLoaded(key, load, null);
+            } else {
+                loadFailureCount.increment();
+            }
+
+            load.completeExceptionally(ex);
+            throw ex;
+        } catch (RuntimeException ex) {
+            loadFailureCount.increment();
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private void refresh(final Key key, final Entry entry, final Loader loader) {
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    JsonNode value = loader.load();
+                    replace(key, entry, value);
+                    refreshCount.increment();
+                } catch (RestException ex) {
+                    if (isNotFound(ex)) {
+                        replace(key, entry, null);
+                    } else {
+                        // Error
+                        logger.debug("Cannot refresh cached entity " + key, ex);
+                        loadFailureCount.increment();
+                        endRefresh(entry);
+                    }
+                } catch (RuntimeException ex) {
+                    // Error
+                    logger.debug("Cannot refresh cached entity " + key, ex);
+                    loadFailureCount.increment();
+                    endRefresh(entry);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            endRefresh(entry);
+        }
+    }
+
+    private void endRefresh(Entry entry) {
+        synchronized (entries) {
+            entry.refreshing = false;
+        }
+    }
+
+    private void storeLoaded(Key key, CompletableFuture<JsonNode> load, JsonNode value) {
+        synchronized (entries) {
+            // Drop the result of loads superseded by a put or an invalidation
+            if (loads.get(key) == load) {
+                store(key, value);
+            }
+        }
+    }
+
+    private void replace(Key key, Entry entry, JsonNode value) {
+        synchronized (entries) {
+            // Drop the result of refreshes superseded in the meantime
+            if (entries.get(key) == entry) {
+                store(key, value);
+            }
+        }
+    }
+
+    // Must be called holding the lock on entries
+    private void store(Key key, JsonNode value) {
+        long timeToLive = (value != null) ? getTimeToLive(key.entityType, TimeUnit.NANOSECONDS) : negativeTimeToLive;
+        if (timeToLive <= 0) {
+            entries.remove(key);
+            return;
+        }
+
+        long now = nanoTime();
+        double ratio = refreshAheadRatio;
+        boolean refreshable = value != null && ratio > 0 && ratio < 1;
+        entries.put(key, new Entry(value, now + timeToLive, refreshable ? now + (long) (timeToLive * ratio) : 0, refreshable));
+    }
+
+    private static boolean isNotFound(RestException ex) {
+        return ex instanceof RestStatusCodeException && ((RestStatusCodeException) ex).getStatusCode() == HttpStatus.NOT_FOUND;
+    }
+
+    private static JsonNode await(CompletableFuture<JsonNode> load) throws RestException {
+        try {
+            return load.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RestException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RestException) {
+                throw (RestException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RestException(ex);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final String entityType;
+        private final String id;
+
+        Key(String entityType, String id) {
+            this.entityType = entityType;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) obj;
+            return entityType.equals(key.entityType) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityType.hashCode() + id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return entityType + "/" + id;
+        }
+    }
+
+    private static final class Entry {
+
+        // Null for entities found not to exist
+        private final JsonNode value;
+        private final long expiresAt;
+        private final long refreshAt;
+        private final boolean refreshable;
+
+        // Guarded by the lock on entries
+        private int hits;
+        private boolean refreshing;
+
+        Entry(JsonNode value, long expiresAt, long refreshAt, boolean refreshable) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+            this.refreshable = refreshable;
+        }
+    }
+
+    private static class DefaultExecutorHolder {
+
+        private static final ExecutorService executor = BambouExecutors.newDaemonThreadPool("bambou-cache-");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.nuagenetworks.bambou.RestException;
+
+/**
+ * Read-through cache of the JSON properties of entities, keyed by entity
+ * type (REST name) and ID. A session configured with a cache serves
+ * {@link net.nuagenetworks.bambou.RestObject#fetch} from it and fills it
+ * with the objects it fetches, creates and modifies.
+ * <p>
+ * Cached properties are shared between readers and must not be modified.
+ */
+public interface RestEntityCache {
+
+    /**
+     * Loads the properties of an entity from the server.
+     */
+    interface Loader {
+
+        JsonNode load() throws RestException;
+    }
+
+    /**
+     * Returns the cached properties of an entity, loading them on a miss.
+     * 
+     * @throws RestException
+     *             if the load failed, or the entity is known not to exist
+     */
+    JsonNode get(String entityType, String id, Loader loader) throws RestException;
+
+    /**
+     * @return the cached properties of an entity, or null if the entity is
+     *         not cached or known not to exist
+     */
+    JsonNode getIfPresent(String entityType, String id);
+
+    void put(String entityType, String id, JsonNode properties);
+
+    void invalidate(String entityType, String id);
+
+    void invalidateAll();
+
+    RestEntityCacheStats getStats();
+}
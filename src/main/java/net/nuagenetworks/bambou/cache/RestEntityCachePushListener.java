@@ -0,0 +1,174 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.cache;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import net.nuagenetworks.bambou.RestPushCenterListener;
+
+/**
+ * Keeps a {@link RestEntityCache} up to date with the push notifications of
+ * the server, so that cached entities do not have to expire to be refreshed.
+ * Register it on the push center of the session owning the cache:
+ * 
+ * <pre>
+ * pushCenter.addListener(new RestEntityCachePushListener(session.getEntityCache()));
+ * </pre>
+ * <p>
+ * Updated entities are patched in place with the properties carried by the
+ * event, deleted ones are invalidated, and created ones clear any cached
+ * 404. The listener measures the staleness window of each event, from the
+ * time the server received the change to the time the cache was updated,
+ * which includes the clock skew between the server and the client.
+ */
+public class RestEntityCachePushListener implements RestPushCenterListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestEntityCachePushListener.class);
+
+    private final RestEntityCache entityCache;
+
+    private final LongAdder eventCount = new LongAdder();
+    private final LongAdder patchCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+    private final LongAdder stalenessCount = new LongAdder();
+    private final LongAdder totalStaleness = new LongAdder();
+    private final AtomicLong maxStaleness = new AtomicLong();
+    private volatile long lastStaleness;
+
+    public RestEntityCachePushListener(RestEntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    @Override
+    public void onEvent(JsonNode event) {
+        eventCount.increment();
+
+        String type = event.path("type").asText();
+        String entityType = event.path("entityType").asText(null);
+        JsonNode entities = event.path("entities");
+        if (entityType == null || !entities.isArray()) {
+            return;
+        }
+
+        for (JsonNode entity : entities) {
+            String id = entity.path("ID").asText(null);
+            if (id == null) {
+                continue;
+            }
+
+            if ("UPDATE".equals(type) && patch(entityType, id, entity)) {
+                patchCount.increment();
+            } else {
+                // Deleted, created or otherwise changed entities are reloaded
+                // on their next read
+                entityCache.invalidate(entityType, id);
+                invalidationCount.increment();
+            }
+        }
+
+        JsonNode eventReceivedTime = event.get("eventReceivedTime");
+        if (eventReceivedTime != null && eventReceivedTime.canConvertToLong()) {
+            recordStaleness(Math.max(0, currentTimeMillis() - eventReceivedTime.asLong()));
+        }
+    }
+
+    public long getEventCount() {
+        return eventCount.sum();
+    }
+
+    public long getPatchCount() {
+        return patchCount.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * @return the staleness window of the last event, in milliseconds
+     */
+    public long getLastStaleness() {
+        return lastStaleness;
+    }
+
+    public long getMaxStaleness() {
+        return maxStaleness.get();
+    }
+
+    public double getAverageStaleness() {
+        long count = stalenessCount.sum();
+        return (count == 0) ? 0 : (double) totalStaleness.sum() / count;
+    }
+
+    /**
+     * @return the current time in milliseconds, as per
+     *         {@link System#currentTimeMillis()}
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private boolean patch(String entityType, String id, JsonNode entity) {
+        JsonNode cachedEntity = entityCache.getIfPresent(entityType, id);
+        if (!(cachedEntity instanceof ObjectNode)) {
+            return false;
+        }
+
+        // Only patch the properties known to the cached entity, cached
+        // properties being shared and immutable
+        ObjectNode patchedEntity = ((ObjectNode) cachedEntity).deepCopy();
+        Iterator<String> names = cachedEntity.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            JsonNode value = entity.get(name);
+            if (value != null) {
+                patchedEntity.set(name, value);
+            }
+        }
+
+        // Debug
+        logger.debug("Patching cached entity " + entityType + "/" + id);
+
+        entityCache.put(entityType, id, patchedEntity);
+        return true;
+    }
+
+    private void recordStaleness(long staleness) {
+        lastStaleness = staleness;
+        stalenessCount.increment();
+        totalStaleness.add(staleness);
+        maxStaleness.accumulateAndGet(staleness, Math::max);
+    }
+}
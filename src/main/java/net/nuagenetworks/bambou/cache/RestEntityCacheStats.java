@@ -0,0 +1,112 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.cache;
+
+/**
+ * Snapshot of the counters of a {@link RestEntityCache}.
+ */
+public class RestEntityCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long negativeHitCount;
+    private final long evictionCount;
+    private final long expirationCount;
+    private final long refreshCount;
+    private final long loadFailureCount;
+    private final int size;
+
+    public RestEntityCacheStats(long hitCount, long missCount, long negativeHitCount, long evictionCount, long expirationCount, long refreshCount,
+            long loadFailureCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.negativeHitCount = negativeHitCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+        this.refreshCount = refreshCount;
+        this.loadFailureCount = loadFailureCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of lookups served from the cache, including the
+     *         entities known not to exist
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of lookups answered by a cached 404
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    /**
+     * @return the number of entries evicted to keep the cache within its
+     *         maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    /**
+     * @return the number of entries reloaded ahead of their expiry
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RestEntityCacheStats [hitCount=" + hitCount + ", missCount=" + missCount + ", negativeHitCount=" + negativeHitCount + ", evictionCount="
+                + evictionCount + ", expirationCount=" + expirationCount + ", refreshCount=" + refreshCount + ", loadFailureCount=" + loadFailureCount
+                + ", size=" + size + "]";
+    }
+}
@@ -17,13 +17,11 @@ import javax.jms.TopicSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.nuagenetworks.bambou.RestPushCenter;
 import net.nuagenetworks.bambou.RestPushCenterListener;
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 public abstract class RestPushCenterJms implements RestPushCenter {
 
@@ -38,6 +36,7 @@ public abstract class RestPushCenterJms implements RestPushCenter {
     protected String jmsTopic;
     protected TopicConnection topicConnection;
     protected List<RestPushCenterListener> listeners = new ArrayList<RestPushCenterListener>();
+    protected JsonCodec jsonCodec = JsonCodec.getSharedInstance();
 
     public void setPort(int jmsPort) {
         this.jmsPort = jmsPort;
@@ -59,6 +58,10 @@ public abstract class RestPushCenterJms implements RestPushCenter {
         this.jmsTopic = jmsTopic;
     }
 
+    public void setJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
     public void addListener(RestPushCenterListener listener) {
         synchronized (listeners) {
             listeners.add(listener);
@@ -121,10 +124,7 @@ public abstract class RestPushCenterJms implements RestPushCenter {
         logger.debug("Processing message: " + json);
 
         // Parse the content of the message in JSON format => event
-        ObjectMapper mapper = new ObjectMapper();
-        JsonFactory factory = mapper.getFactory();
-        JsonParser parser = factory.createParser(json);
-        JsonNode event = mapper.readTree(parser);
+        JsonNode event = jsonCodec.readTree(json);
 
         // Take a snapshot of the listeners
         List<RestPushCenterListener> listenersSnapshot = null;
@@ -0,0 +1,133 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.metadata;
+
+import java.lang.reflect.Array;
+
+import net.nuagenetworks.bambou.annotation.RestEntity;
+
+/**
+ * REST metadata of an entity class: names from its {@link RestEntity}
+ * annotation, array class and URL path segment. Metadata is resolved once per
+ * class, from the generated {@link RestEntityDescriptor} when there is one and
+ * through reflection otherwise, and obtained through
+ * {@link #forClass(Class)}.
+ */
+public final class EntityMetadata {
+
+    private static final ClassValue<EntityMetadata> metadata = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return new EntityMetadata(type);
+        }
+    };
+
+    private final Class<?> entityClass;
+    private final Class<?> arrayClass;
+    private final String restName;
+    private final String resourceName;
+    private final String resourcePath;
+    private final RestEntityDescriptor<?> descriptor;
+
+    private EntityMetadata(Class<?> entityClass) {
+        this.entityClass = entityClass;
+        this.descriptor = RestEntityDescriptors.get(entityClass);
+
+        if (descriptor != null) {
+            this.arrayClass = descriptor.getArrayClass();
+            this.restName = descriptor.getRestName();
+            this.resourceName = descriptor.getResourceName();
+        } else {
+            RestEntity annotation = entityClass.getAnnotation(RestEntity.class);
+            this.arrayClass = Array.newInstance(entityClass, 0).getClass();
+            this.restName = (annotation != null) ? annotation.restName() : null;
+            this.resourceName = (annotation != null) ? annotation.resourceName() : null;
+        }
+
+        this.resourcePath = (resourceName != null) ? "/" + resourceName : null;
+    }
+
+    public static EntityMetadata forClass(Class<?> type) {
+        return metadata.get(type);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Class<T[]> getArrayClass() {
+        return (Class<T[]>) arrayClass;
+    }
+
+    /**
+     * @return whether the class is annotated with {@link RestEntity}
+     */
+    public boolean isRestEntity() {
+        return restName != null;
+    }
+
+    public String getRestName() {
+        return restName;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * @return the resource name as a URL path segment, i.e. with a leading
+     *         slash
+     */
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    /**
+     * @return the generated descriptor of the class, or null if it has not
+     *         been processed by the annotation processor
+     */
+    public RestEntityDescriptor<?> getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the URL of the entity collection under the specified base URL
+     */
+    public String getResourceUrl(String baseUrl) {
+        return baseUrl.concat(resourcePath);
+    }
+
+    /**
+     * @return the URL of the entity with the specified ID under the specified
+     *         base URL
+     */
+    public String getResourceUrl(String baseUrl, String id) {
+        return new StringBuilder(baseUrl.length() + resourcePath.length() + id.length() + 1).append(baseUrl).append(resourcePath).append('/').append(id)
+                .toString();
+    }
+}
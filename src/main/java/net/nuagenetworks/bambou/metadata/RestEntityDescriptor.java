@@ -0,0 +1,63 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.metadata;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+
+import net.nuagenetworks.bambou.RestObject;
+import net.nuagenetworks.bambou.util.PropertyCopier;
+
+/**
+ * Compile-time metadata of a {@link net.nuagenetworks.bambou.annotation.RestEntity}
+ * class, generated by {@link net.nuagenetworks.bambou.processor.RestEntityProcessor}
+ * and looked up at runtime through {@link RestEntityDescriptors}.
+ */
+public interface RestEntityDescriptor<T extends RestObject> {
+
+    Class<T> getEntityClass();
+
+    Class<T[]> getArrayClass();
+
+    String getRestName();
+
+    String getResourceName();
+
+    PropertyCopier getPropertyCopier();
+
+    /**
+     * @return the generated serializer, or null when the entity relies on
+     *         features the processor does not reproduce
+     */
+    JsonSerializer<T> getSerializer();
+
+    /**
+     * @return the generated deserializer, or null when the entity relies on
+     *         features the processor does not reproduce
+     */
+    JsonDeserializer<T> getDeserializer();
+}
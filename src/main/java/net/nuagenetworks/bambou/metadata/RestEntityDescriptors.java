@@ -0,0 +1,99 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.metadata;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.nuagenetworks.bambou.RestObject;
+
+/**
+ * Registry of the {@link RestEntityDescriptor}s generated at compile time.
+ * The descriptor of an entity class is looked up once, by naming convention,
+ * in the entity's own class loader.
+ */
+public final class RestEntityDescriptors {
+
+    public static final String DESCRIPTOR_CLASS_SUFFIX = "_EntityDescriptor";
+
+    private static final Logger logger = LoggerFactory.getLogger(RestEntityDescriptors.class);
+
+    private static final ClassValue<Optional<RestEntityDescriptor<?>>> descriptors = new ClassValue<Optional<RestEntityDescriptor<?>>>() {
+        @Override
+        protected Optional<RestEntityDescriptor<?>> computeValue(Class<?> type) {
+            return loadDescriptor(type);
+        }
+    };
+
+    private RestEntityDescriptors() {
+    }
+
+    /**
+     * @return the generated descriptor of the specified class, or null if the
+     *         class has not been processed by the annotation processor
+     */
+    public static RestEntityDescriptor<?> get(Class<?> type) {
+        if (!RestObject.class.isAssignableFrom(type)) {
+            return null;
+        }
+
+        return descriptors.get(type).orElse(null);
+    }
+
+    /**
+     * @return the name of the descriptor class generated for the entity class
+     *         with the specified binary name
+     */
+    public static String getDescriptorClassName(String entityBinaryName) {
+        int packageEnd = entityBinaryName.lastIndexOf('.');
+        String packageName = entityBinaryName.substring(0, packageEnd + 1);
+        String className = entityBinaryName.substring(packageEnd + 1).replace('$', '_');
+        return packageName + className + DESCRIPTOR_CLASS_SUFFIX;
+    }
+
+    private static Optional<RestEntityDescriptor<?>> loadDescriptor(Class<?> type) {
+        if (type.getClassLoader() == null) {
+            return Optional.empty();
+        }
+
+        try {
+            Class<?> descriptorClass = Class.forName(getDescriptorClassName(type.getName()), true, type.getClassLoader());
+            RestEntityDescriptor<?> descriptor = (RestEntityDescriptor<?>) descriptorClass.getDeclaredConstructor().newInstance();
+            if (descriptor.getEntityClass() == type) {
+                return Optional.<RestEntityDescriptor<?>> of(descriptor);
+            }
+        } catch (ClassNotFoundException ex) {
+            // Not processed, use reflection
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+            logger.warn("Ignoring unusable entity descriptor for " + type.getName(), ex);
+        }
+
+        return Optional.empty();
+    }
+}
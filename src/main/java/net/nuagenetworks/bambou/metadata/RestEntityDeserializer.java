@@ -0,0 +1,159 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.metadata;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import net.nuagenetworks.bambou.RestObject;
+
+/**
+ * Base class of the streaming deserializers generated for
+ * {@link net.nuagenetworks.bambou.annotation.RestEntity} classes. Scalar
+ * attributes in their natural JSON representation are read directly from the
+ * parser; anything else is delegated to the regular Jackson deserializers so
+ * the mapper configuration (coercions, unknown enum values...) still applies.
+ */
+public abstract class RestEntityDeserializer<T extends RestObject> extends StdDeserializer<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    protected RestEntityDeserializer(Class<T> entityClass) {
+        super(entityClass);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (T) ctxt.handleUnexpectedToken(handledType(), p);
+        }
+
+        T value = createEntity();
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String name = p.currentName();
+            p.nextToken();
+            if (!deserializeField(name, value, p, ctxt)) {
+                handleUnknownProperty(p, ctxt, value, name);
+            }
+        }
+
+        return value;
+    }
+
+    protected abstract T createEntity();
+
+    /**
+     * Reads the value of the specified attribute, the parser being positioned
+     * on the value's first token.
+     *
+     * @return false if the attribute is unknown
+     */
+    protected abstract boolean deserializeField(String name, T value, JsonParser p, DeserializationContext ctxt) throws IOException;
+
+    protected static void skipValue(JsonParser p) throws IOException {
+        p.skipChildren();
+    }
+
+    protected static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+
+        return readValue(p, ctxt, String.class);
+    }
+
+    protected static Long readLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NUMBER_INT && p.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+            return p.getLongValue();
+        }
+
+        return readValue(p, ctxt, Long.class);
+    }
+
+    protected static Integer readInteger(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT) {
+            return p.getIntValue();
+        }
+
+        return readValue(p, ctxt, Integer.class);
+    }
+
+    protected static Boolean readBoolean(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        } else if (token == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+
+        return readValue(p, ctxt, Boolean.class);
+    }
+
+    protected static Double readDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getDoubleValue();
+        }
+
+        return readValue(p, ctxt, Double.class);
+    }
+
+    protected static Float readFloat(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getFloatValue();
+        }
+
+        return readValue(p, ctxt, Float.class);
+    }
+
+    protected static <V> V readValue(JsonParser p, DeserializationContext ctxt, Class<V> type) throws IOException {
+        return readValue(p, ctxt, ctxt.constructType(type));
+    }
+
+    protected static <V> V readValue(JsonParser p, DeserializationContext ctxt, TypeReference<V> type) throws IOException {
+        return readValue(p, ctxt, ctxt.getTypeFactory().constructType(type));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V readValue(JsonParser p, DeserializationContext ctxt, JavaType type) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return (V) ctxt.findRootValueDeserializer(type).getNullValue(ctxt);
+        }
+
+        return ctxt.readValue(p, type);
+    }
+}
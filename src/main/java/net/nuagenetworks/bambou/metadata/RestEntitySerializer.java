@@ -0,0 +1,109 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.metadata;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import net.nuagenetworks.bambou.RestObject;
+
+/**
+ * Base class of the streaming serializers generated for
+ * {@link net.nuagenetworks.bambou.annotation.RestEntity} classes.
+ */
+public abstract class RestEntitySerializer<T extends RestObject> extends StdSerializer<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    protected RestEntitySerializer(Class<T> entityClass) {
+        super(entityClass);
+    }
+
+    @Override
+    public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        serializeFields(value, gen, provider);
+        gen.writeEndObject();
+    }
+
+    protected abstract void serializeFields(T value, JsonGenerator gen, SerializerProvider provider) throws IOException;
+
+    protected static void writeStringField(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeNumberField(JsonGenerator gen, String name, Long value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value.longValue());
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeNumberField(JsonGenerator gen, String name, Integer value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value.intValue());
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeNumberField(JsonGenerator gen, String name, Double value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value.doubleValue());
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeNumberField(JsonGenerator gen, String name, Float value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value.floatValue());
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeBooleanField(JsonGenerator gen, String name, Boolean value) throws IOException {
+        if (value != null) {
+            gen.writeBooleanField(name, value.booleanValue());
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    protected static void writeObjectField(JsonGenerator gen, SerializerProvider provider, String name, Object value) throws IOException {
+        provider.defaultSerializeField(name, value, gen);
+    }
+}
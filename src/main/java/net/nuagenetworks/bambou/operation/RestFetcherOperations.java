@@ -27,8 +27,12 @@
 package net.nuagenetworks.bambou.operation;
 
 import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import net.nuagenetworks.bambou.RestException;
+import net.nuagenetworks.bambou.RestFuture;
 import net.nuagenetworks.bambou.RestObject;
 import net.nuagenetworks.bambou.RestSession;
 
@@ -69,4 +73,32 @@ public interface RestFetcherOperations<T extends RestObject> {
 
     int count(RestSession<?> session, String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize, String queryParameters, boolean commit)
             throws RestException;
+
+    void fetchEach(String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize, String queryParameters, boolean commit,
+            Consumer<? super T> consumer) throws RestException;
+
+    void fetchEach(RestSession<?> session, String filter, String orderBy, String[] groupBy, Integer page, Integer pageSize, String queryParameters,
+            boolean commit, Consumer<? super T> consumer) throws RestException;
+
+    List<T> fetchAll(String filter, String orderBy, int pageSize, int parallelism) throws RestException;
+
+    List<T> fetchAll(RestSession<?> session, String filter, String orderBy, int pageSize, int parallelism) throws RestException;
+
+    RestFuture<List<T>> getAsync() throws RestException;
+
+    RestFuture<List<T>> fetchAsync() throws RestException;
+
+    RestFuture<Integer> countAsync() throws RestException;
+
+    Iterable<T> iterate(String filter, String orderBy, int pageSize) throws RestException;
+
+    Iterable<T> iterate(RestSession<?> session, String filter, String orderBy, int pageSize);
+
+    Stream<T> stream(String filter, String orderBy, int pageSize) throws RestException;
+
+    Stream<T> stream(RestSession<?> session, String filter, String orderBy, int pageSize);
+
+    Flow.Publisher<T> publisher(String filter, String orderBy, int pageSize) throws RestException;
+
+    Flow.Publisher<T> publisher(RestSession<?> session, String filter, String orderBy, int pageSize);
 }
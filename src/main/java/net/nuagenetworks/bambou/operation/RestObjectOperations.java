@@ -30,6 +30,7 @@ import java.util.List;
 
 import net.nuagenetworks.bambou.RestException;
 import net.nuagenetworks.bambou.BulkResponse;
+import net.nuagenetworks.bambou.RestFuture;
 import net.nuagenetworks.bambou.RestObject;
 import net.nuagenetworks.bambou.RestSession;
 
@@ -101,4 +102,12 @@ public interface RestObjectOperations {
     void unassign(RestSession<?> session, List<? extends RestObject> childRestObjs, boolean commit) throws RestException;
 
     void assignOne(RestSession<?> session, RestObject childRestObj) throws RestException;
+
+    RestFuture<Void> fetchAsync() throws RestException;
+
+    RestFuture<Void> saveAsync() throws RestException;
+
+    RestFuture<Void> deleteAsync() throws RestException;
+
+    RestFuture<Void> createChildAsync(RestObject childRestObj) throws RestException;
 }
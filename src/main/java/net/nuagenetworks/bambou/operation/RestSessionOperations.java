@@ -31,6 +31,7 @@ import java.util.List;
 import net.nuagenetworks.bambou.RestException;
 import net.nuagenetworks.bambou.BulkResponse;
 import net.nuagenetworks.bambou.RestFetcher;
+import net.nuagenetworks.bambou.RestFuture;
 import net.nuagenetworks.bambou.RestObject;
 
 public interface RestSessionOperations {
@@ -92,4 +93,18 @@ public interface RestSessionOperations {
     void assign(RestObject restObj, List<? extends RestObject> childRestObjs, Integer responseChoice, boolean commit) throws RestException;
     void unassign(RestObject restObj, List<? extends RestObject> childRestObjs, boolean commit) throws RestException;
     void assignOne(RestObject restObj, RestObject childRestObj) throws RestException;
+
+    RestFuture<Void> fetchAsync(RestObject restObj);
+
+    RestFuture<Void> saveAsync(RestObject restObj);
+
+    RestFuture<Void> deleteAsync(RestObject restObj);
+
+    RestFuture<Void> createChildAsync(RestObject restObj, RestObject childRestObj);
+
+    <T extends RestObject> RestFuture<List<T>> getAsync(RestFetcher<T> fetcher);
+
+    <T extends RestObject> RestFuture<List<T>> fetchAsync(RestFetcher<T> fetcher);
+
+    <T extends RestObject> RestFuture<Integer> countAsync(RestFetcher<T> fetcher);
 }
@@ -0,0 +1,613 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.processor;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import net.nuagenetworks.bambou.RestObject;
+import net.nuagenetworks.bambou.annotation.RestEntity;
+import net.nuagenetworks.bambou.metadata.RestEntityDescriptors;
+
+/**
+ * Generates a {@link net.nuagenetworks.bambou.metadata.RestEntityDescriptor}
+ * for every {@link RestEntity} class: REST and resource names, array class,
+ * property accessors and, when the entity only relies on plain
+ * {@link JsonProperty} fields, streaming Jackson serializer and deserializer.
+ * <p>
+ * The processor is not registered as a service, it must be enabled explicitly
+ * when compiling entity classes, e.g. with
+ * {@code -processor net.nuagenetworks.bambou.processor.RestEntityProcessor}.
+ */
+@SupportedAnnotationTypes("net.nuagenetworks.bambou.annotation.RestEntity")
+public class RestEntityProcessor extends AbstractProcessor {
+
+    private static final String JACKSON_ANNOTATION_PACKAGE = "com.fasterxml.jackson.";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RestEntity.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+
+            TypeElement entityElement = (TypeElement) element;
+            try {
+                EntityModel entity = new EntityModel(entityElement);
+                if (entity.isSupported()) {
+                    writeDescriptor(entity);
+                }
+            } catch (IOException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate entity descriptor: " + ex, entityElement);
+            }
+        }
+
+        return false;
+    }
+
+    private void writeDescriptor(EntityModel entity) throws IOException {
+        String descriptorName = RestEntityDescriptors.getDescriptorClassName(entity.binaryName);
+        String descriptorSimpleName = descriptorName.substring(descriptorName.lastIndexOf('.') + 1);
+        String type = entity.typeName;
+
+        StringBuilder src = new StringBuilder();
+        if (!entity.packageName.isEmpty()) {
+            src.append("package ").append(entity.packageName).append(";\n\n");
+        }
+
+        src.append("// Generated by ").append(RestEntityProcessor.class.getName()).append(". Do not edit.\n");
+        src.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        src.append("public final class ").append(descriptorSimpleName)
+                .append(" implements net.nuagenetworks.bambou.metadata.RestEntityDescriptor<").append(type).append("> {\n\n");
+
+        // Property accessors
+        src.append("    private static final java.util.Map<String, net.nuagenetworks.bambou.util.PropertyAccessor> ACCESSORS = new java.util.HashMap<>();\n\n");
+        src.append("    private static final java.util.List<net.nuagenetworks.bambou.util.PropertyAccessor> COPIED_ACCESSORS = new java.util.ArrayList<>();\n\n");
+        src.append("    static {\n");
+        for (BeanProperty property : entity.beanProperties.values()) {
+            src.append("        ACCESSORS.put(\"").append(property.name).append("\", new net.nuagenetworks.bambou.util.PropertyAccessor(\"")
+                    .append(property.name).append("\", ");
+            if (property.getter != null) {
+                src.append("bean -> ((").append(type).append(") bean).").append(property.getter.getSimpleName()).append("()");
+            } else {
+                src.append("null");
+            }
+            src.append(", ");
+            if (property.setter != null) {
+                src.append("(bean, value) -> ((").append(type).append(") bean).").append(property.setter.getSimpleName()).append("((")
+                        .append(boxedTypeName(property.setter.getParameters().get(0).asType())).append(") value)");
+            } else {
+                src.append("null");
+            }
+            src.append("));\n");
+        }
+        for (JsonField field : entity.jsonFields.values()) {
+            BeanProperty property = entity.beanProperties.get(field.fieldName);
+            if (property != null && property.getter != null && property.setter != null) {
+                src.append("        COPIED_ACCESSORS.add(ACCESSORS.get(\"").append(property.name).append("\"));\n");
+            }
+        }
+        src.append("    }\n\n");
+
+        src.append("    private static final net.nuagenetworks.bambou.util.PropertyCopier PROPERTY_COPIER = new net.nuagenetworks.bambou.util.PropertyCopier(")
+                .append(type).append(".class, COPIED_ACCESSORS, ACCESSORS);\n\n");
+
+        if (entity.serializable) {
+            src.append("    private static final Serializer SERIALIZER = new Serializer();\n\n");
+        }
+        if (entity.deserializable) {
+            src.append("    private static final Deserializer DESERIALIZER = new Deserializer();\n\n");
+        }
+
+        appendGetter(src, "Class<" + type + ">", "getEntityClass", type + ".class");
+        appendGetter(src, "Class<" + type + "[]>", "getArrayClass", type + "[].class");
+        appendGetter(src, "String", "getRestName", stringLiteral(entity.restName));
+        appendGetter(src, "String", "getResourceName", stringLiteral(entity.resourceName));
+        appendGetter(src, "net.nuagenetworks.bambou.util.PropertyCopier", "getPropertyCopier", "PROPERTY_COPIER");
+        appendGetter(src, "com.fasterxml.jackson.databind.JsonSerializer<" + type + ">", "getSerializer", entity.serializable ? "SERIALIZER" : "null");
+        appendGetter(src, "com.fasterxml.jackson.databind.JsonDeserializer<" + type + ">", "getDeserializer", entity.deserializable ? "DESERIALIZER" : "null");
+
+        if (entity.serializable) {
+            appendSerializer(src, entity);
+        }
+        if (entity.deserializable) {
+            appendDeserializer(src, entity);
+        }
+
+        src.append("}\n");
+
+        JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(descriptorName, entity.element);
+        try (Writer writer = sourceFile.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    private void appendSerializer(StringBuilder src, EntityModel entity) {
+        String type = entity.typeName;
+        src.append("\n    private static final class Serializer extends net.nuagenetworks.bambou.metadata.RestEntitySerializer<").append(type).append("> {\n\n");
+        src.append("        private static final long serialVersionUID = 1L;\n\n");
+        src.append("        Serializer() {\n            super(").append(type).append(".class);\n        }\n\n");
+        src.append("        @Override\n");
+        src.append("        protected void serializeFields(").append(type)
+                .append(" value, com.fasterxml.jackson.core.JsonGenerator gen, com.fasterxml.jackson.databind.SerializerProvider provider) throws java.io.IOException {\n");
+        for (JsonField field : entity.jsonFields.values()) {
+            BeanProperty property = entity.beanProperties.get(field.fieldName);
+            String getterCall = "value." + property.getter.getSimpleName() + "()";
+            String name = stringLiteral(field.jsonName);
+            String getterType = property.getter.getReturnType().toString();
+            switch (getterType) {
+            case "java.lang.String":
+                src.append("            writeStringField(gen, ").append(name).append(", ").append(getterCall).append(");\n");
+                break;
+            case "java.lang.Long":
+            case "java.lang.Integer":
+            case "java.lang.Double":
+            case "java.lang.Float":
+            case "long":
+            case "int":
+            case "double":
+            case "float":
+                src.append("            writeNumberField(gen, ").append(name).append(", ").append(getterCall).append(");\n");
+                break;
+            case "java.lang.Boolean":
+            case "boolean":
+                src.append("            writeBooleanField(gen, ").append(name).append(", ").append(getterCall).append(");\n");
+                break;
+            default:
+                src.append("            writeObjectField(gen, provider, ").append(name).append(", ").append(getterCall).append(");\n");
+                break;
+            }
+        }
+        src.append("        }\n    }\n");
+    }
+
+    private void appendDeserializer(StringBuilder src, EntityModel entity) {
+        String type = entity.typeName;
+        src.append("\n    private static final class Deserializer extends net.nuagenetworks.bambou.metadata.RestEntityDeserializer<").append(type).append("> {\n\n");
+        src.append("        private static final long serialVersionUID = 1L;\n\n");
+
+        // Type references for the generic attribute types
+        int typeReferenceCount = 0;
+        Map<JsonField, String> typeReferences = new LinkedHashMap<JsonField, String>();
+        for (JsonField field : entity.jsonFields.values()) {
+            BeanProperty property = entity.beanProperties.get(field.fieldName);
+            TypeMirror setterType = property.setter.getParameters().get(0).asType();
+            if (setterType.getKind() == TypeKind.DECLARED && !((DeclaredType) setterType).getTypeArguments().isEmpty()) {
+                String typeReference = "TYPE_" + (typeReferenceCount++);
+                typeReferences.put(field, typeReference);
+                src.append("        private static final com.fasterxml.jackson.core.type.TypeReference<").append(setterType).append("> ")
+                        .append(typeReference).append(" = new com.fasterxml.jackson.core.type.TypeReference<").append(setterType).append(">() {\n        };\n\n");
+            }
+        }
+
+        src.append("        Deserializer() {\n            super(").append(type).append(".class);\n        }\n\n");
+        src.append("        @Override\n");
+        src.append("        protected ").append(type).append(" createEntity() {\n            return new ").append(type).append("();\n        }\n\n");
+        src.append("        @Override\n");
+        src.append("        protected boolean deserializeField(String name, ").append(type)
+                .append(" value, com.fasterxml.jackson.core.JsonParser p, com.fasterxml.jackson.databind.DeserializationContext ctxt) throws java.io.IOException {\n");
+        src.append("            switch (name) {\n");
+        for (JsonField field : entity.jsonFields.values()) {
+            BeanProperty property = entity.beanProperties.get(field.fieldName);
+            TypeMirror setterType = property.setter.getParameters().get(0).asType();
+            String read;
+            switch (setterType.toString()) {
+            case "java.lang.String":
+                read = "readString(p, ctxt)";
+                break;
+            case "java.lang.Long":
+                read = "readLong(p, ctxt)";
+                break;
+            case "java.lang.Integer":
+                read = "readInteger(p, ctxt)";
+                break;
+            case "java.lang.Boolean":
+                read = "readBoolean(p, ctxt)";
+                break;
+            case "java.lang.Double":
+                read = "readDouble(p, ctxt)";
+                break;
+            case "java.lang.Float":
+                read = "readFloat(p, ctxt)";
+                break;
+            default:
+                if (typeReferences.containsKey(field)) {
+                    read = "readValue(p, ctxt, " + typeReferences.get(field) + ")";
+                } else {
+                    read = "readValue(p, ctxt, " + erasedTypeName(setterType) + ".class)";
+                }
+                break;
+            }
+            src.append("            case ").append(stringLiteral(field.jsonName)).append(":\n");
+            src.append("                value.").append(property.setter.getSimpleName()).append("(").append(read).append(");\n");
+            src.append("                return true;\n");
+        }
+        for (String ignoredName : entity.ignoredNames) {
+            if (!entity.jsonFields.containsKey(ignoredName)) {
+                src.append("            case ").append(stringLiteral(ignoredName)).append(":\n");
+                src.append("                skipValue(p);\n");
+                src.append("                return true;\n");
+            }
+        }
+        if (entity.ignoreUnknown) {
+            // @JsonIgnoreProperties(ignoreUnknown = true)
+            src.append("            default:\n                skipValue(p);\n                return true;\n            }\n        }\n    }\n");
+        } else {
+            src.append("            default:\n                return false;\n            }\n        }\n    }\n");
+        }
+    }
+
+    private static void appendGetter(StringBuilder src, String returnType, String name, String value) {
+        src.append("    @Override\n");
+        src.append("    public ").append(returnType).append(" ").append(name).append("() {\n");
+        src.append("        return ").append(value).append(";\n");
+        src.append("    }\n\n");
+    }
+
+    private String boxedTypeName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+        }
+
+        return type.toString();
+    }
+
+    private String erasedTypeName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String stringLiteral(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+
+        return literal.append('"').toString();
+    }
+
+    private static final class JsonField {
+        private final String fieldName;
+        private final String jsonName;
+
+        private JsonField(String fieldName, String jsonName) {
+            this.fieldName = fieldName;
+            this.jsonName = jsonName;
+        }
+    }
+
+    private static final class BeanProperty {
+        private final String name;
+        private ExecutableElement getter;
+        private ExecutableElement setter;
+
+        private BeanProperty(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * What the processor knows about an entity class and its superclasses.
+     */
+    private final class EntityModel {
+        private final TypeElement element;
+        private final String packageName;
+        private final String binaryName;
+        private final String typeName;
+        private final String restName;
+        private final String resourceName;
+        private final Map<String, JsonField> jsonFields = new LinkedHashMap<String, JsonField>();
+        private final Map<String, BeanProperty> beanProperties = new LinkedHashMap<String, BeanProperty>();
+        private final Set<String> ignoredNames = new HashSet<String>();
+        private boolean supported = true;
+        private boolean serializable = true;
+        private boolean deserializable = true;
+        private boolean ignoreUnknown;
+
+        private EntityModel(TypeElement element) {
+            Elements elements = processingEnv.getElementUtils();
+            Types types = processingEnv.getTypeUtils();
+            Messager messager = processingEnv.getMessager();
+
+            this.element = element;
+            PackageElement packageElement = elements.getPackageOf(element);
+            this.packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+            this.binaryName = elements.getBinaryName(element).toString();
+            this.typeName = element.getQualifiedName().toString();
+
+            RestEntity restEntity = element.getAnnotation(RestEntity.class);
+            this.restName = restEntity.restName();
+            this.resourceName = restEntity.resourceName();
+
+            TypeElement restObjectElement = elements.getTypeElement(RestObject.class.getName());
+            if (!element.getTypeParameters().isEmpty() || !isReachable(element)
+                    || (restObjectElement != null && !types.isAssignable(element.asType(), restObjectElement.asType()))) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "Skipping entity descriptor: not a concrete RestObject subclass", element);
+                supported = false;
+                return;
+            }
+
+            if (element.getModifiers().contains(Modifier.ABSTRACT) || !element.getModifiers().contains(Modifier.PUBLIC) || !hasPublicNoArgConstructor(element)) {
+                deserializable = false;
+            }
+
+            // Walk the class hierarchy, subclasses first
+            List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+            for (TypeElement current = element; current != null && !current.getQualifiedName().contentEquals(Object.class.getName());) {
+                hierarchy.add(current);
+                TypeMirror superclass = current.getSuperclass();
+                current = (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) types.asElement(superclass) : null;
+            }
+
+            for (TypeElement type : hierarchy) {
+                for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+                    String annotationName = annotation.getAnnotationType().toString();
+                    if (!annotationName.startsWith(JACKSON_ANNOTATION_PACKAGE)) {
+                        continue;
+                    }
+
+                    if (isIgnoreUnknownOnly(annotation)) {
+                        ignoreUnknown |= isIgnoreUnknown(annotation);
+                    } else {
+                        // Class level Jackson configuration: leave it to Jackson
+                        serializable = false;
+                        deserializable = false;
+                    }
+                }
+
+                collectMethods(type);
+            }
+
+            // Same attribute order as Jackson: superclass fields first
+            for (int i = hierarchy.size() - 1; i >= 0; i--) {
+                collectFields(hierarchy.get(i));
+            }
+
+            // Every JSON attribute must be reachable through the bean accessors
+            for (JsonField field : jsonFields.values()) {
+                BeanProperty property = beanProperties.get(field.fieldName);
+                if (property == null || property.getter == null) {
+                    serializable = false;
+                }
+                if (property == null || property.setter == null) {
+                    deserializable = false;
+                }
+            }
+
+            // Getters not backed by a JSON field would be serialized by Jackson
+            Set<String> jsonFieldNames = new HashSet<String>();
+            for (JsonField field : jsonFields.values()) {
+                jsonFieldNames.add(field.fieldName);
+            }
+            for (BeanProperty property : beanProperties.values()) {
+                if (property.getter != null && !jsonFieldNames.contains(property.name) && !ignoredNames.contains(property.name)
+                        && !property.name.equals("class")) {
+                    serializable = false;
+                }
+            }
+        }
+
+        private boolean isSupported() {
+            return supported;
+        }
+
+        private void collectFields(TypeElement type) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+
+                String fieldName = field.getSimpleName().toString();
+                JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
+                if (field.getAnnotation(JsonIgnore.class) != null) {
+                    ignoredNames.add(fieldName);
+                } else if (jsonProperty != null) {
+                    if (hasJacksonAnnotationOtherThan(field, JsonProperty.class) || hasAttributesOtherThanValue(field)) {
+                        serializable = false;
+                        deserializable = false;
+                    }
+
+                    String jsonName = jsonProperty.value().isEmpty() ? fieldName : jsonProperty.value();
+                    if (!jsonFields.containsKey(jsonName)) {
+                        jsonFields.put(jsonName, new JsonField(fieldName, jsonName));
+                    }
+                } else if (field.getModifiers().contains(Modifier.PUBLIC) && !field.getModifiers().contains(Modifier.TRANSIENT)) {
+                    // Public fields are auto-detected by Jackson
+                    serializable = false;
+                    deserializable = false;
+                }
+            }
+        }
+
+        private void collectMethods(TypeElement type) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = method.getModifiers();
+                if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) {
+                    continue;
+                }
+
+                String methodName = method.getSimpleName().toString();
+                int parameterCount = method.getParameters().size();
+                TypeKind returnKind = method.getReturnType().getKind();
+                String propertyName = null;
+                boolean getter = false;
+                if (parameterCount == 0 && returnKind != TypeKind.VOID && methodName.startsWith("get") && methodName.length() > 3) {
+                    propertyName = Introspector.decapitalize(methodName.substring(3));
+                    getter = true;
+                } else if (parameterCount == 0 && returnKind == TypeKind.BOOLEAN && methodName.startsWith("is") && methodName.length() > 2) {
+                    propertyName = Introspector.decapitalize(methodName.substring(2));
+                    getter = true;
+                } else if (parameterCount == 1 && returnKind == TypeKind.VOID && methodName.startsWith("set") && methodName.length() > 3) {
+                    propertyName = Introspector.decapitalize(methodName.substring(3));
+                } else {
+                    continue;
+                }
+
+                if (method.getAnnotation(JsonIgnore.class) != null) {
+                    ignoredNames.add(propertyName);
+                } else if (hasJacksonAnnotation(method)) {
+                    serializable = false;
+                    deserializable = false;
+                }
+
+                BeanProperty property = beanProperties.get(propertyName);
+                if (property == null) {
+                    property = new BeanProperty(propertyName);
+                    beanProperties.put(propertyName, property);
+                }
+
+                // Subclasses are visited first, keep the overriding method
+                if (getter && property.getter == null) {
+                    property.getter = method;
+                } else if (!getter && property.setter == null) {
+                    if (property.getter == null || processingEnv.getTypeUtils().isSameType(property.getter.getReturnType(),
+                            method.getParameters().get(0).asType())) {
+                        property.setter = method;
+                    }
+                }
+            }
+        }
+
+        private boolean isReachable(TypeElement type) {
+            // The descriptor lives in the entity's package and must be able to name it
+            for (Element current = type; current.getKind().isClass(); current = current.getEnclosingElement()) {
+                if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                    return false;
+                }
+                if (current.getEnclosingElement().getKind().isClass() && !current.getModifiers().contains(Modifier.STATIC)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean hasPublicNoArgConstructor(TypeElement type) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean hasJacksonAnnotation(Element annotated) {
+            return hasJacksonAnnotationOtherThan(annotated, null);
+        }
+
+        private boolean hasJacksonAnnotationOtherThan(Element annotated, Class<?> allowedAnnotation) {
+            for (AnnotationMirror annotation : annotated.getAnnotationMirrors()) {
+                String annotationName = annotation.getAnnotationType().toString();
+                if (annotationName.startsWith(JACKSON_ANNOTATION_PACKAGE) && (allowedAnnotation == null || !annotationName.equals(allowedAnnotation.getName()))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean isIgnoreUnknownOnly(AnnotationMirror annotation) {
+            if (!annotation.getAnnotationType().toString().equals(JsonIgnoreProperties.class.getName())) {
+                return false;
+            }
+
+            for (ExecutableElement attribute : annotation.getElementValues().keySet()) {
+                if (!attribute.getSimpleName().contentEquals("ignoreUnknown")) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isIgnoreUnknown(AnnotationMirror annotation) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> attribute : annotation.getElementValues().entrySet()) {
+                if (attribute.getKey().getSimpleName().contentEquals("ignoreUnknown")) {
+                    return Boolean.TRUE.equals(attribute.getValue().getValue());
+                }
+            }
+
+            return false;
+        }
+
+        private boolean hasAttributesOtherThanValue(Element annotated) {
+            for (AnnotationMirror annotation : annotated.getAnnotationMirrors()) {
+                if (annotation.getAnnotationType().toString().equals(JsonProperty.class.getName())) {
+                    for (ExecutableElement attribute : annotation.getElementValues().keySet()) {
+                        if (!attribute.getSimpleName().contentEquals("value")) {
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Negotiates gzip/deflate response compression and decompresses the
+ * responses as they are read, so that large listings are parsed straight from
+ * the compressed stream. Request bodies are gzipped when they reach the
+ * request compression threshold, which is disabled by default since not every
+ * server accepts compressed requests.
+ * <p>
+ * The ratio of every (de)compression is logged at DEBUG level and reported to
+ * the {@link CompressionListener}, if any.
+ */
+public class CompressionInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionInterceptor.class);
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+
+    private boolean responseCompressionEnabled = true;
+    private int requestCompressionThreshold = -1;
+    private CompressionListener listener;
+
+    public boolean isResponseCompressionEnabled() {
+        return responseCompressionEnabled;
+    }
+
+    public void setResponseCompressionEnabled(boolean responseCompressionEnabled) {
+        this.responseCompressionEnabled = responseCompressionEnabled;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the size, in bytes, from which request bodies are gzipped. A
+     * negative threshold disables request compression.
+     */
+    public void setRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+    }
+
+    public CompressionListener getListener() {
+        return listener;
+    }
+
+    public void setListener(CompressionListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        if (responseCompressionEnabled && !headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, GZIP + ", " + DEFLATE);
+        }
+
+        if (requestCompressionThreshold >= 0 && body.length > 0 && body.length >= requestCompressionThreshold
+                && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            byte[] compressedBody = gzip(body);
+            reportRequest(request, body.length, compressedBody.length);
+
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            headers.setContentLength(compressedBody.length);
+            body = compressedBody;
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null) {
+            encoding = encoding.trim().toLowerCase();
+            if (encoding.equals(GZIP) || encoding.equals("x-gzip") || encoding.equals(DEFLATE)) {
+                return new DecompressingResponse(request, response, encoding);
+            }
+        }
+
+        return response;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressedBody = new ByteArrayOutputStream(Math.max(body.length / 4, 64));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressedBody)) {
+            out.write(body);
+        }
+
+        return compressedBody.toByteArray();
+    }
+
+    private void reportRequest(HttpRequest request, long originalLength, long compressedLength) {
+        // Debug
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Compressed %s %s request body from %d to %d bytes (ratio %.2f)", request.getMethod(), request.getURI(),
+                    originalLength, compressedLength, ratio(originalLength, compressedLength)));
+        }
+
+        if (listener != null) {
+            listener.requestCompressed(request.getMethod(), request.getURI(), GZIP, originalLength, compressedLength);
+        }
+    }
+
+    private void reportResponse(HttpRequest request, String encoding, long compressedLength, long decompressedLength) {
+        // Debug
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Decompressed %s %s %s response body from %d to %d bytes (ratio %.2f)", request.getMethod(), request.getURI(),
+                    encoding, compressedLength, decompressedLength, ratio(decompressedLength, compressedLength)));
+        }
+
+        if (listener != null) {
+            listener.responseDecompressed(request.getMethod(), request.getURI(), encoding, compressedLength, decompressedLength);
+        }
+    }
+
+    private static double ratio(long originalLength, long compressedLength) {
+        return (compressedLength > 0) ? (double) originalLength / compressedLength : 0;
+    }
+
+    /**
+     * Response decompressing its body as it is read. The sizes are reported
+     * when the response is closed.
+     */
+    private class DecompressingResponse implements ClientHttpResponse {
+
+        private final HttpRequest request;
+        private final ClientHttpResponse response;
+        private final String encoding;
+        private HttpHeaders headers;
+        private CountingInputStream compressedBody;
+        private CountingInputStream body;
+
+        private DecompressingResponse(HttpRequest request, ClientHttpResponse response, String encoding) {
+            this.request = request;
+            this.response = response;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                // The body is no longer encoded and its length is unknown
+                HttpHeaders headers = new HttpHeaders();
+                headers.putAll(response.getHeaders());
+                headers.remove(HttpHeaders.CONTENT_ENCODING);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                this.headers = headers;
+            }
+
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                compressedBody = new CountingInputStream(response.getBody());
+
+                // Bodiless responses, e.g. 204 or 304, may still declare an
+                // encoding
+                PushbackInputStream in = new PushbackInputStream(compressedBody, 1);
+                int firstByte = in.read();
+                if (firstByte < 0) {
+                    body = new CountingInputStream(in);
+                } else {
+                    in.unread(firstByte);
+                    body = new CountingInputStream(encoding.equals(DEFLATE) ? new InflaterInputStream(in) : new GZIPInputStream(in));
+                }
+            }
+
+            return body;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            response.close();
+            if (body != null) {
+                reportResponse(request, encoding, compressedBody.count, body.count);
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Validators of the content last received for a request, used to send the
+ * request again conditionally. The server answers 304 Not Modified when the
+ * content did not change since, in which case it is neither transferred nor
+ * decoded. When the server supplies neither an entity tag nor a
+ * modification date, a hash of the content is compared instead, which still
+ * spares decoding an unchanged content.
+ * <p>
+ * Validators apply to a single request, identified by its URL and headers,
+ * and are only adopted through {@link #commit()} once the caller applied the
+ * content they validate: an owner answered "unchanged" must still hold that
+ * content.
+ */
+public class ResponseValidators {
+
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+
+    private Validators current;
+    private Validators received;
+
+    /**
+     * Adopts the validators of the last response received.
+     */
+    public synchronized void commit() {
+        if (received != null) {
+            current = received;
+            received = null;
+        }
+    }
+
+    /**
+     * Forgets all validators, so that the next request is unconditional.
+     */
+    public synchronized void reset() {
+        current = null;
+        received = null;
+    }
+
+    /**
+     * Adds the conditional headers of the request to the specified headers.
+     * 
+     * @return the key identifying the request
+     */
+    synchronized String prepareRequest(String url, HttpHeaders headers) {
+        String key = getRequestKey(url, headers);
+        if (current != null && current.key.equals(key)) {
+            if (current.entityTag != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, current.entityTag);
+            }
+
+            if (current.lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, current.lastModified);
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Records the validators of a successful response.
+     * 
+     * @return whether the response content is known to be unchanged
+     */
+    synchronized boolean isUnchanged(String key, HttpStatus statusCode, HttpHeaders responseHeaders, byte[] responseBody) {
+        if (statusCode == HttpStatus.NOT_MODIFIED) {
+            received = current;
+            return current != null;
+        }
+
+        String entityTag = responseHeaders.getETag();
+        String lastModified = responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED);
+        byte[] contentHash = (entityTag == null && lastModified == null && responseBody != null) ? hash(responseBody) : null;
+        received = new Validators(key, entityTag, lastModified, contentHash);
+
+        return contentHash != null && current != null && current.key.equals(key) && Arrays.equals(contentHash, current.contentHash);
+    }
+
+    private static String getRequestKey(String url, HttpHeaders headers) {
+        StringBuilder key = new StringBuilder(url);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            // Credentials change with each API key, while the content is the
+            // same for a given user
+            String name = header.getKey();
+            if (!HttpHeaders.AUTHORIZATION.equalsIgnoreCase(name) && !HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)
+                    && !HttpHeaders.IF_MODIFIED_SINCE.equalsIgnoreCase(name)) {
+                key.append('\n').append(name).append(':').append(header.getValue());
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Validators {
+
+        private final String key;
+        private final String entityTag;
+        private final String lastModified;
+        private final byte[] contentHash;
+
+        Validators(String key, String entityTag, String lastModified, byte[] contentHash) {
+            this.key = key;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+        }
+    }
+}
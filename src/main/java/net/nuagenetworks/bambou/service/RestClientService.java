@@ -27,9 +27,12 @@
 package net.nuagenetworks.bambou.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpRetryException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -47,20 +50,26 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestOperations;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
 import net.nuagenetworks.bambou.RestException;
 import net.nuagenetworks.bambou.RestStatusCodeException;
+import net.nuagenetworks.bambou.UncheckedRestException;
 import net.nuagenetworks.bambou.ssl.DynamicKeystoreGenerator;
 import net.nuagenetworks.bambou.ssl.NaiveHostnameVerifier;
 import net.nuagenetworks.bambou.ssl.X509NaiveTrustManager;
-import net.nuagenetworks.bambou.util.BambouUtils;
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 @Service
 public class RestClientService {
@@ -69,6 +78,44 @@ public class RestClientService {
     @Autowired
     private RestOperations restOperations;
 
+    private JsonCodec jsonCodec = JsonCodec.getSharedInstance();
+    private WireLogger wireLogger = new Slf4jWireLogger();
+
+    public RestClientService() {
+    }
+
+    /**
+     * Creates a service sending its requests through the specified
+     * operations, without any Spring context.
+     */
+    public RestClientService(RestOperations restOperations) {
+        this.restOperations = restOperations;
+    }
+
+    public RestOperations getRestOperations() {
+        return restOperations;
+    }
+
+    public void setRestOperations(RestOperations restOperations) {
+        this.restOperations = restOperations;
+    }
+
+    public JsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
+
+    public void setJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    public WireLogger getWireLogger() {
+        return wireLogger;
+    }
+
+    public void setWireLogger(WireLogger wireLogger) {
+        this.wireLogger = wireLogger;
+    }
+
     public void prepareSSLAuthentication(String certificateContent, String privateKeyContent) {
         try {
             // Create a trust manager that doesn't validate cert chains
@@ -101,17 +148,85 @@ public class RestClientService {
 
     public <T, U> ResponseEntity<T> sendRequest(HttpMethod method, String url, HttpHeaders headers, U requestObject, Class<T> responseType)
             throws RestException {
-        logger.debug(String.format("> %s %s", method, url));
-        logger.debug(String.format("> headers: %s", headers));
-        logger.debug(String.format("> data:\n  %s", BambouUtils.toString(requestObject)));
+        return sendRequest(method, url, headers, requestObject, responseType, null);
+    }
 
-        ResponseEntity<T> response = sendRequest(method, url, new HttpEntity<U>(requestObject, headers), responseType);
+    /**
+     * Sends a request conditionally on the content last received for it, as
+     * recorded by the specified validators. A response whose content did not
+     * change is returned with a 304 Not Modified status and no body, its
+     * content, if any, not being decoded.
+     */
+    public <T, U> ResponseEntity<T> sendRequest(HttpMethod method, String url, HttpHeaders headers, U requestObject, Class<T> responseType,
+            ResponseValidators validators) throws RestException {
+        String validatorsKey = null;
+        if (validators != null) {
+            // Request headers may be shared and read-only
+            HttpHeaders conditionalHeaders = new HttpHeaders();
+            if (headers != null) {
+                conditionalHeaders.putAll(headers);
+            }
 
-        logger.debug(String.format("< %s %s [%s]", method, url, response.getStatusCode()));
-        logger.debug(String.format("< headers: %s", response.getHeaders()));
-        logger.debug(String.format("< data:\n  %s", BambouUtils.toString(response.getBody())));
+            validatorsKey = validators.prepareRequest(url, conditionalHeaders);
+            headers = conditionalHeaders;
+        }
+
+        // Only pay for logging when the wire logger samples this request
+        WireLogger activeWireLogger = (wireLogger != null && wireLogger.shouldLog(method, url)) ? wireLogger : null;
+        if (activeWireLogger != null) {
+            activeWireLogger.logRequest(method, url, headers, requestObject, jsonCodec);
+        }
+
+        return sendRequest(method, url, new HttpEntity<U>(requestObject, headers), responseType, activeWireLogger, validators, validatorsKey);
+    }
+
+    /**
+     * Sends a request whose response content is a JSON array and hands the
+     * decoded elements to the consumer one at a time, as they are read from
+     * the response stream. The response is never held in memory as a whole.
+     *
+     * @return the status and headers of the response
+     */
+    public <T> ResponseEntity<Void> sendStreamingRequest(final HttpMethod method, final String url, final HttpHeaders headers, final Class<T> elementType,
+            final Consumer<? super T> consumer) throws RestException {
+        final WireLogger activeWireLogger = (wireLogger != null && wireLogger.shouldLog(method, url)) ? wireLogger : null;
+        if (activeWireLogger != null) {
+            activeWireLogger.logRequest(method, url, headers, null, jsonCodec);
+        }
 
-        return response;
+        final long startTime = System.nanoTime();
+        RequestCallback requestCallback = request -> {
+            if (headers != null) {
+                request.getHeaders().putAll(headers);
+            }
+        };
+        ResponseExtractor<ResponseEntity<Void>> responseExtractor = response -> {
+            HttpStatus statusCode = response.getStatusCode();
+            if (activeWireLogger != null) {
+                activeWireLogger.logResponse(method, url, statusCode, response.getHeaders(), null, System.nanoTime() - startTime);
+            }
+
+            HttpStatus.Series series = statusCode.series();
+            if (series == HttpStatus.Series.CLIENT_ERROR || series == HttpStatus.Series.SERVER_ERROR) {
+                byte[] responseBody = StreamUtils.copyToByteArray(response.getBody());
+                throw new UncheckedRestException(createStatusCodeException(statusCode, responseBody));
+            }
+
+            readElements(response.getBody(), elementType, consumer);
+            return new ResponseEntity<Void>(response.getHeaders(), statusCode);
+        };
+
+        try {
+            return restOperations.execute(url, method, requestCallback, responseExtractor);
+        } catch (UncheckedRestException ex) {
+            throw ex.getCause();
+        } catch (ResourceAccessException ex) {
+            if (ex.getCause() instanceof HttpRetryException) {
+                HttpRetryException retryException = (HttpRetryException) ex.getCause();
+                throw new RestStatusCodeException(HttpStatus.valueOf(retryException.responseCode()), retryException.getReason(), retryException.getReason());
+            }
+            throw ex;
+        }
     }
 
     public String sendRawRequest(HttpMethod method, String uri) {
@@ -127,8 +242,10 @@ public class RestClientService {
         return response.getBody();
     }    
 
-    private <T, U> ResponseEntity<T> sendRequest(HttpMethod method, String uri, HttpEntity<U> content, Class<T> responseType) throws RestException {
+    private <T, U> ResponseEntity<T> sendRequest(HttpMethod method, String uri, HttpEntity<U> content, Class<T> responseType, WireLogger activeWireLogger,
+            ResponseValidators validators, String validatorsKey) throws RestException {
         ResponseEntity<byte[]> response = null;
+        long startTime = System.nanoTime();
 
         // We must handle HEAD differently because we don't wanna parse the body.
         // There is a bug in the VSD where the content-length is non-zero but no content is returned
@@ -136,6 +253,9 @@ public class RestClientService {
         {
             try {
                 ResponseEntity<?> r = restOperations.exchange(uri, method, content, (Class<?>)null);
+                if (activeWireLogger != null) {
+                    activeWireLogger.logResponse(method, uri, r.getStatusCode(), r.getHeaders(), null, System.nanoTime() - startTime);
+                }
                 HttpStatus statusCode = r.getStatusCode();
                 HttpStatus.Series series = statusCode.series();
                 if (series != HttpStatus.Series.CLIENT_ERROR && series != HttpStatus.Series.SERVER_ERROR) {
@@ -158,77 +278,114 @@ public class RestClientService {
                 }
                 throw e;
             }
+
+            if (activeWireLogger != null) {
+                activeWireLogger.logResponse(method, uri, response.getStatusCode(), response.getHeaders(), response.getBody(), System.nanoTime() - startTime);
+            }
         }
 
-        String responseBody = response.getBody()==null?null:new String(response.getBody());
+        // Decode straight from the response bytes, no intermediate String
+        byte[] responseBody = response.getBody();
         HttpStatus statusCode = response.getStatusCode();
-        ObjectMapper objectMapper = new ObjectMapper();
-	objectMapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
 
         try {
             HttpStatus.Series series = statusCode.series();
             if (series != HttpStatus.Series.CLIENT_ERROR && series != HttpStatus.Series.SERVER_ERROR) {
-                T body = (responseBody != null) ? objectMapper.readValue(responseBody, responseType) : null;
+                if (validators != null && validators.isUnchanged(validatorsKey, statusCode, response.getHeaders(), responseBody)) {
+                    // Unchanged content, not worth decoding
+                    return new ResponseEntity<T>(response.getHeaders(), HttpStatus.NOT_MODIFIED);
+                }
+
+                T body = (responseBody != null) ? jsonCodec.getReader(responseType).<T> readValue(responseBody) : null;
                 return new ResponseEntity<T>(body, response.getHeaders(), response.getStatusCode());
             } else {
-                try {
-                    // Debug
-                    logger.debug("Response error: {} {} {}", statusCode, statusCode.getReasonPhrase(), responseBody);
-
-                    // Try to retrieve an error message from the response
-                    // content (in JSON format)
-                    String errorMessage = null;
-                    if (responseBody == null) throw new RestStatusCodeException(statusCode);
-                    JsonNode responseObj = objectMapper.readTree(responseBody);
-                    ArrayNode errorsNode = (ArrayNode) responseObj.get("errors");
-                    if (errorsNode != null && errorsNode.size() > 0) {
-                        JsonNode error = errorsNode.get(0);
-                        ArrayNode descriptionsNode = (ArrayNode) error.get("descriptions");
-                        if (descriptionsNode != null && descriptionsNode.size() > 0) {
-                            JsonNode descriptionBlockNode = descriptionsNode.get(0);
-                            JsonNode descriptionNode = descriptionBlockNode.get("description");
-                            if (descriptionNode != null) {
-                                errorMessage = descriptionNode.asText();
-                            }
-                            JsonNode propertyNode = error.get("property");
-                            if (propertyNode != null) {
-                                errorMessage = propertyNode.asText() + ": " + errorMessage;
-                            }
-                        }
-                    }
+                throw createStatusCodeException(statusCode, responseBody);
+            }
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
 
-                    // Set a default error message if not already set
-                    if (errorMessage == null) {
-                        errorMessage = statusCode + " " + statusCode.getReasonPhrase();
-                    }
+    private <T> void readElements(InputStream content, Class<T> elementType, Consumer<? super T> consumer) throws IOException {
+        ObjectReader reader = jsonCodec.getReader(elementType);
+        try (JsonParser parser = jsonCodec.getObjectMapper().getFactory().createParser(content)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                // No content
+                return;
+            }
 
-                    // Try to retrieve an error code from the response
-                    // content (in JSON format)
-                    String internalErrorCode = null;
-                    JsonNode internalErrorCodeNode = responseObj.get("internalErrorCode");
-                    if (internalErrorCodeNode != null) {
-                        internalErrorCode = internalErrorCodeNode.asText();
-                    }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a JSON array but found " + token);
+            }
 
-                    // Raise an exception with status code, description and
-                    // internal error code
-                    throw new RestStatusCodeException(statusCode, errorMessage, internalErrorCode);
-                } catch (RestStatusCodeException restStatusCodeException) {
-                    throw restStatusCodeException;
-                } catch (Exception ex) {
-                    // No error message available in the response
-                    switch (statusCode.series()) {
-                    case CLIENT_ERROR:
-                        throw new RestStatusCodeException(ex, statusCode);
-                    case SERVER_ERROR:
-                        throw new RestStatusCodeException(ex, statusCode);
-                    default:
-                        throw new RestClientException("Unknown status code [" + statusCode + "]");
+            // Only one element is materialized at a time
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token != JsonToken.VALUE_NULL) {
+                    consumer.accept(reader.<T> readValue(parser));
+                }
+            }
+        }
+    }
+
+    private RestStatusCodeException createStatusCodeException(HttpStatus statusCode, byte[] responseBody) {
+        try {
+            // Debug
+            if (logger.isDebugEnabled()) {
+                logger.debug("Response error: {} {} {}", statusCode, statusCode.getReasonPhrase(),
+                        (responseBody != null) ? new String(responseBody, StandardCharsets.UTF_8) : null);
+            }
+
+            // Try to retrieve an error message from the response
+            // content (in JSON format)
+            String errorMessage = null;
+            if (responseBody == null) throw new RestStatusCodeException(statusCode);
+            JsonNode responseObj = jsonCodec.getObjectMapper().readTree(responseBody);
+            ArrayNode errorsNode = (ArrayNode) responseObj.get("errors");
+            if (errorsNode != null && errorsNode.size() > 0) {
+                JsonNode error = errorsNode.get(0);
+                ArrayNode descriptionsNode = (ArrayNode) error.get("descriptions");
+                if (descriptionsNode != null && descriptionsNode.size() > 0) {
+                    JsonNode descriptionBlockNode = descriptionsNode.get(0);
+                    JsonNode descriptionNode = descriptionBlockNode.get("description");
+                    if (descriptionNode != null) {
+                        errorMessage = descriptionNode.asText();
+                    }
+                    JsonNode propertyNode = error.get("property");
+                    if (propertyNode != null) {
+                        errorMessage = propertyNode.asText() + ": " + errorMessage;
                     }
                 }
             }
-        } catch (IOException ex) {
-            throw new RestException(ex);
+
+            // Set a default error message if not already set
+            if (errorMessage == null) {
+                errorMessage = statusCode + " " + statusCode.getReasonPhrase();
+            }
+
+            // Try to retrieve an error code from the response
+            // content (in JSON format)
+            String internalErrorCode = null;
+            JsonNode internalErrorCodeNode = responseObj.get("internalErrorCode");
+            if (internalErrorCodeNode != null) {
+                internalErrorCode = internalErrorCodeNode.asText();
+            }
+
+            // Raise an exception with status code, description and
+            // internal error code
+            return new RestStatusCodeException(statusCode, errorMessage, internalErrorCode);
+        } catch (RestStatusCodeException restStatusCodeException) {
+            return restStatusCodeException;
+        } catch (Exception ex) {
+            // No error message available in the response
+            switch (statusCode.series()) {
+            case CLIENT_ERROR:
+                return new RestStatusCodeException(ex, statusCode);
+            case SERVER_ERROR:
+                return new RestStatusCodeException(ex, statusCode);
+            default:
+                throw new RestClientException("Unknown status code [" + statusCode + "]");
+            }
         }
     }
 }
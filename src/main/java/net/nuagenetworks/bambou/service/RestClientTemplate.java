@@ -26,67 +26,206 @@
 */
 package net.nuagenetworks.bambou.service;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLContext;
 
 import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.TrustStrategy;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 
-public class RestClientTemplate extends RestTemplate {
+import net.nuagenetworks.bambou.metadata.RestEntityModule;
+import net.nuagenetworks.bambou.util.BambouExecutors;
+
+/**
+ * REST template sending the requests through a pool of persistent HTTP
+ * connections. The pool is kept when the timeouts or the proxy change; only
+ * disabling the certificate validation replaces it. The previous pool is then
+ * drained: it is closed once its connections are all released, or after the
+ * idle timeout at the latest.
+ * <p>
+ * With the {@link Transport#HTTP_2} transport, the requests go through the JDK
+ * HTTP client instead and are multiplexed over HTTP/2 connections. No pool is
+ * created then.
+ */
+public class RestClientTemplate extends RestTemplate implements Closeable {
+
+    public enum Transport {
+        /**
+         * Apache HttpClient, one pooled connection per concurrent request
+         */
+        HTTP_1_1,
+        /**
+         * JDK HttpClient, HTTP/2 with a fallback on HTTP/1.1 when the server
+         * does not negotiate it
+         */
+        HTTP_2
+    }
 
     private static final int DEFAULT_SOCKET_TIMEOUT_IN_MS = 60 * 1000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 100;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    private static final long DEFAULT_KEEP_ALIVE_IN_MS = 30 * 1000;
+    private static final long DEFAULT_IDLE_TIMEOUT_IN_MS = 60 * 1000;
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS = 2 * 1000;
+    private static final long DRAIN_CHECK_INTERVAL_IN_MS = 100;
     private int socketTimeout = DEFAULT_SOCKET_TIMEOUT_IN_MS;
     private int proxyPort = 0;
     private String proxyHost = null;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private long keepAlive = DEFAULT_KEEP_ALIVE_IN_MS;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT_IN_MS;
+    private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS;
     
     private boolean certValidationDisabled = false;
+    private Transport transport = Transport.HTTP_1_1;
 
-    CloseableHttpClient httpClient;
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+    private ScheduledFuture<?> connectionEviction;
+    // Previous pools waiting for their connections to be released
+    private final Set<PoolingHttpClientConnectionManager> drainingConnectionManagers = ConcurrentHashMap.newKeySet();
+    volatile CloseableHttpClient httpClient;
+    private volatile JdkHttpClientRequestFactory http2RequestFactory;
+    private final CompressionInterceptor compressionInterceptor = new CompressionInterceptor();
 
     public RestClientTemplate() {
+        this(Transport.HTTP_1_1);
+    }
+
+    public RestClientTemplate(Transport transport) {
         super();
 
-        this.httpClient = this.createClient(); 
+        this.transport = transport;
+
+        if (transport != Transport.HTTP_2) {
+            this.connectionManager = this.createConnectionManager();
+            this.scheduleConnectionEviction();
+        }
         this.setSocketTimeout(DEFAULT_SOCKET_TIMEOUT_IN_MS);
         ResponseErrorHandlerImpl responseErrorHandler = new ResponseErrorHandlerImpl();
         setErrorHandler(responseErrorHandler);
+        getInterceptors().add(compressionInterceptor);
+
+        // Serialize request bodies with the generated entity codecs, if any
+        for (HttpMessageConverter<?> converter : getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                ((MappingJackson2HttpMessageConverter) converter).getObjectMapper().registerModule(new RestEntityModule());
+            }
+        }
     }
 
-    public HttpComponentsClientHttpRequestFactory getRequestFactory() {
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-        requestFactory.setHttpClient(this.httpClient);
+    public ClientHttpRequestFactory getRequestFactory() {
+        ClientHttpRequestFactory requestFactory = this.http2RequestFactory;
+        if (requestFactory == null) {
+            requestFactory = new HttpComponentsClientHttpRequestFactory(this.httpClient);
+        }
+
+        // Both transports share the interceptors, e.g. compression
+        List<ClientHttpRequestInterceptor> interceptors = getInterceptors();
+        if (!interceptors.isEmpty()) {
+            requestFactory = new InterceptingClientHttpRequestFactory(requestFactory, interceptors);
+        }
 
         return requestFactory;
     }
 
-    public void disableCertificateValidation() {
+    /**
+     * @return the interceptor negotiating response compression and
+     *         compressing request bodies, to configure it
+     */
+    public CompressionInterceptor getCompressionInterceptor() {
+        return compressionInterceptor;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public synchronized void setTransport(Transport transport) {
+        // Debug
+        logger.debug("Using transport for REST connection: " + transport);
+        this.transport = transport;
+
+        PoolingHttpClientConnectionManager previousConnectionManager = this.connectionManager;
+        if (transport == Transport.HTTP_2) {
+            // The JDK client manages its own connections
+            this.connectionManager = null;
+        } else if (previousConnectionManager == null) {
+            this.connectionManager = this.createConnectionManager();
+        }
+        this.scheduleConnectionEviction();
+        this.replaceClient();
+
+        if (previousConnectionManager != null && previousConnectionManager != this.connectionManager) {
+            this.drainConnectionManager(previousConnectionManager);
+        }
+    }
+
+    public synchronized void disableCertificateValidation() {
         this.certValidationDisabled = true;
-        this.httpClient = this.createClient();
+
+        // The socket factories are bound to the pool
+        PoolingHttpClientConnectionManager previousConnectionManager = this.connectionManager;
+        if (previousConnectionManager != null) {
+            this.connectionManager = this.createConnectionManager();
+        }
+        this.replaceClient();
+
+        if (previousConnectionManager != null) {
+            this.drainConnectionManager(previousConnectionManager);
+        }
     }
 
-    public void setSocketTimeout(int socketTimeout) {
+    public synchronized void setSocketTimeout(int socketTimeout) {
         if (socketTimeout > 0) {
             // Debug
             logger.debug("Using socket timeout for REST connection: " + socketTimeout);
             this.socketTimeout = socketTimeout;
-            this.httpClient = this.createClient();
+            this.replaceClient();
         }
     }
 
-    public void setHttpProxy(String host, int port) {
+    public synchronized void setHttpProxy(String host, int port) {
         if (host != null && !host.isEmpty()) {
             // Debug
             logger.debug("Using HTTP proxy for REST connection: " + host + ":" + port);
@@ -94,14 +233,197 @@ public class RestClientTemplate extends RestTemplate {
             this.proxyHost = host;
             this.proxyPort = port;
 
-            this.httpClient = this.createClient();
+            this.replaceClient();
         }
     }
 
-    private CloseableHttpClient createClient() {
+    /**
+     * Sets the maximum number of connections in the pool, all routes included.
+     */
+    public synchronized void setMaxConnections(int maxConnections) {
+        if (maxConnections > 0) {
+            this.maxConnections = maxConnections;
+            if (this.connectionManager != null) {
+                this.connectionManager.setMaxTotal(maxConnections);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of connections to the same host, i.e. the
+     * maximum number of concurrent requests to a VSD.
+     */
+    public synchronized void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute > 0) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            if (this.connectionManager != null) {
+                this.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            }
+        }
+    }
+
+    /**
+     * Sets how long an idle connection is kept alive, in milliseconds, when
+     * the server does not specify it with a Keep-Alive header.
+     */
+    public synchronized void setKeepAlive(long keepAlive) {
+        if (keepAlive > 0) {
+            this.keepAlive = keepAlive;
+            this.replaceClient();
+        }
+    }
+
+    /**
+     * Sets after how long, in milliseconds, idle connections get evicted from
+     * the pool along with the expired ones. Zero disables the eviction.
+     */
+    public synchronized void setIdleTimeout(long idleTimeout) {
+        if (idleTimeout >= 0) {
+            this.idleTimeout = idleTimeout;
+            this.scheduleConnectionEviction();
+        }
+    }
+
+    /**
+     * Sets after how long, in milliseconds, a pooled connection is checked
+     * before being reused. A negative value disables the check.
+     */
+    public synchronized void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+        if (this.connectionManager != null) {
+            this.connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+        }
+    }
+
+    /**
+     * @return the number of leased, pending and available connections of the
+     *         pool, for monitoring. The HTTP/2 transport has no pool, its
+     *         stats are all zero but the maximum.
+     */
+    public PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager connectionManager = this.connectionManager;
+        return (connectionManager != null) ? connectionManager.getTotalStats() : new PoolStats(0, 0, 0, this.maxConnections);
+    }
+
+    /**
+     * Closes all the connections of the pool.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.connectionEviction != null) {
+            this.connectionEviction.cancel(false);
+        }
+
+        if (this.httpClient != null) {
+            this.httpClient.close();
+        }
+        if (this.connectionManager != null) {
+            this.connectionManager.shutdown();
+        }
+        for (PoolingHttpClientConnectionManager drainingConnectionManager : this.drainingConnectionManagers) {
+            drainingConnectionManager.shutdown();
+        }
+        this.drainingConnectionManagers.clear();
+    }
+
+    private void replaceClient() {
+        // The pool is shared between successive clients, so the previous
+        // client can be closed without affecting requests in flight
+        CloseableHttpClient previousClient = this.httpClient;
+        boolean http2 = (this.transport == Transport.HTTP_2);
+        this.httpClient = http2 ? null : this.createClient();
+        this.http2RequestFactory = http2 ? this.createHttp2RequestFactory() : null;
+
+        try {
+            if (previousClient != null) {
+                previousClient.close();
+            }
+        } catch (IOException ex) {
+            logger.warn("Cannot close previous HTTP client", ex);
+        }
+    }
+
+    private void scheduleConnectionEviction() {
+        if (this.connectionEviction != null) {
+            this.connectionEviction.cancel(false);
+            this.connectionEviction = null;
+        }
+
+        if (this.idleTimeout > 0 && this.connectionManager != null) {
+            ConnectionEviction eviction = new ConnectionEviction(this, this.idleTimeout);
+            this.connectionEviction = BambouExecutors.getScheduler().scheduleWithFixedDelay(eviction, this.idleTimeout,
+                    Math.max(this.idleTimeout / 2, 1), TimeUnit.MILLISECONDS);
+            eviction.future = this.connectionEviction;
+        }
+    }
+
+    /**
+     * Evicts the expired and idle connections of the pool. The task only
+     * holds a weak reference to the template, so that the shared scheduler
+     * does not keep a template that was not closed, and its pool, alive.
+     */
+    private static final class ConnectionEviction implements Runnable {
+
+        private final WeakReference<RestClientTemplate> template;
+        private final long idleTimeout;
+        private volatile ScheduledFuture<?> future;
+
+        private ConnectionEviction(RestClientTemplate template, long idleTimeout) {
+            this.template = new WeakReference<RestClientTemplate>(template);
+            this.idleTimeout = idleTimeout;
+        }
+
+        @Override
+        public void run() {
+            RestClientTemplate template = this.template.get();
+            if (template == null) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+
+            PoolingHttpClientConnectionManager connectionManager = template.connectionManager;
+            if (connectionManager != null) {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Closes the available connections of a replaced pool right away, and
+     * the pool itself once the requests in flight have released theirs, or
+     * after the idle timeout at the latest.
+     */
+    private void drainConnectionManager(final PoolingHttpClientConnectionManager connectionManager) {
+        connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        if (connectionManager.getTotalStats().getLeased() == 0) {
+            connectionManager.shutdown();
+            return;
+        }
+
+        // Only the pool and the draining set are captured, not the template
+        final Set<PoolingHttpClientConnectionManager> drainingConnectionManagers = this.drainingConnectionManagers;
+        drainingConnectionManagers.add(connectionManager);
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((this.idleTimeout > 0) ? this.idleTimeout : DEFAULT_IDLE_TIMEOUT_IN_MS);
+        final AtomicReference<ScheduledFuture<?>> drain = new AtomicReference<ScheduledFuture<?>>();
+        drain.set(BambouExecutors.getScheduler().scheduleWithFixedDelay(() -> {
+            if (connectionManager.getTotalStats().getLeased() == 0 || System.nanoTime() - deadline >= 0
+                    || !drainingConnectionManagers.contains(connectionManager)) {
+                drainingConnectionManagers.remove(connectionManager);
+                connectionManager.shutdown();
+                drain.get().cancel(false);
+            } else {
+                connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+        }, DRAIN_CHECK_INTERVAL_IN_MS, DRAIN_CHECK_INTERVAL_IN_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private SSLContext createSSLContext() {
             SSLContextBuilder builder = new SSLContextBuilder();
-            SSLConnectionSocketFactory factory;
-            HttpClientBuilder clientBuilder = HttpClients.custom();
 
             try {
                 if (this.certValidationDisabled) {
@@ -111,33 +433,80 @@ public class RestClientTemplate extends RestTemplate {
                             return true;
                         }
                     });
-                    factory = new SSLConnectionSocketFactory(builder.build(), NoopHostnameVerifier.INSTANCE);
-                } else {
-                    factory = new SSLConnectionSocketFactory(builder.build());
                 }
 
-                RequestConfig config = RequestConfig.custom()
-                  .setConnectTimeout(this.socketTimeout)
-                  .setConnectionRequestTimeout(this.socketTimeout)
-                  .setSocketTimeout(this.socketTimeout).build();
+                return builder.build();
+            } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
+                throw new IllegalStateException("Cannot create SSL context", e);
+            }
+    }
 
+    private PoolingHttpClientConnectionManager createConnectionManager() {
+            SSLConnectionSocketFactory factory;
+            if (this.certValidationDisabled) {
+                factory = new SSLConnectionSocketFactory(this.createSSLContext(), NoopHostnameVerifier.INSTANCE);
+            } else {
+                factory = new SSLConnectionSocketFactory(this.createSSLContext());
+            }
 
-                if (this.proxyHost != null && this.proxyPort != 0) {
-                    HttpHost httpProxy = new HttpHost(this.proxyHost, this.proxyPort);
-                    DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(httpProxy);
-                    clientBuilder.setRoutePlanner(routePlanner);
-                }
-    
-                return clientBuilder 
-                  .setDefaultRequestConfig(config)
-                  .setSSLSocketFactory(factory).build();
-            } catch (NoSuchAlgorithmException e) {
-                return null;
-            } catch (KeyManagementException e) {
-                return null;
-            } catch (KeyStoreException e) {
-                return null;
+            Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", factory).build();
+
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+            connectionManager.setMaxTotal(this.maxConnections);
+            connectionManager.setDefaultMaxPerRoute(this.maxConnectionsPerRoute);
+            connectionManager.setValidateAfterInactivity(this.validateAfterInactivity);
+
+            return connectionManager;
+    }
+
+    private CloseableHttpClient createClient() {
+            HttpClientBuilder clientBuilder = HttpClients.custom();
+
+            RequestConfig config = RequestConfig.custom()
+              .setConnectTimeout(this.socketTimeout)
+              .setConnectionRequestTimeout(this.socketTimeout)
+              .setSocketTimeout(this.socketTimeout).build();
+
+
+            if (this.proxyHost != null && this.proxyPort != 0) {
+                HttpHost httpProxy = new HttpHost(this.proxyHost, this.proxyPort);
+                DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(httpProxy);
+                clientBuilder.setRoutePlanner(routePlanner);
             }
+
+            // Use the server's Keep-Alive timeout if any, or else ours
+            final long keepAlive = this.keepAlive;
+            ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return (duration > 0) ? duration : keepAlive;
+            };
+
+            // Content encodings are handled by the compression interceptor,
+            // for both transports
+            return clientBuilder 
+              .setDefaultRequestConfig(config)
+              .setConnectionManager(this.connectionManager)
+              .setConnectionManagerShared(true)
+              .disableContentCompression()
+              .setKeepAliveStrategy(keepAliveStrategy).build();
+    }
+
+    private JdkHttpClientRequestFactory createHttp2RequestFactory() {
+            // The JDK client manages its own connections. Host name
+            // verification can only be disabled JVM-wide, through the
+            // jdk.internal.httpclient.disableHostnameVerification property
+            HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_2)
+              .connectTimeout(Duration.ofMillis(this.socketTimeout))
+              .sslContext(this.createSSLContext());
+
+            if (this.proxyHost != null && this.proxyPort != 0) {
+                clientBuilder.proxy(ProxySelector.of(new InetSocketAddress(this.proxyHost, this.proxyPort)));
+            }
+
+            return new JdkHttpClientRequestFactory(clientBuilder.build(), Duration.ofMillis(this.socketTimeout));
     }
 
 }
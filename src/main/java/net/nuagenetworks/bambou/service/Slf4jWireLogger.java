@@ -0,0 +1,219 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import net.nuagenetworks.bambou.util.JsonCodec;
+
+/**
+ * Default {@link WireLogger}. Writes the headers and bodies of every sampled
+ * exchange, truncated to {@link #getMaxBodyLength()} characters, at DEBUG
+ * level. Once enabled with {@link #setSummaryEnabled(boolean)}, also writes a
+ * one-line summary (method, URL, status, latency and response size) of every
+ * sampled exchange at INFO level. The summary is disabled by default, so that
+ * exchanges are not logged unless DEBUG is enabled.
+ */
+public class Slf4jWireLogger implements WireLogger {
+
+    public static final int DEFAULT_MAX_BODY_LENGTH = 4096;
+
+    private static final Logger logger = LoggerFactory.getLogger(Slf4jWireLogger.class);
+
+    private boolean summaryEnabled;
+    private int maxBodyLength = DEFAULT_MAX_BODY_LENGTH;
+    private double samplingRate = 1.0;
+    private Map<String, Double> endpointSamplingRates = new ConcurrentHashMap<String, Double>();
+
+    public boolean isSummaryEnabled() {
+        return summaryEnabled;
+    }
+
+    public void setSummaryEnabled(boolean summaryEnabled) {
+        this.summaryEnabled = summaryEnabled;
+    }
+
+    public int getMaxBodyLength() {
+        return maxBodyLength;
+    }
+
+    public void setMaxBodyLength(int maxBodyLength) {
+        this.maxBodyLength = maxBodyLength;
+    }
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    public void setSamplingRate(double samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * Overrides the sampling rate (0.0 to 1.0) for the requests whose URL
+     * contains the specified fragment, e.g. "/events". When several fragments
+     * match, the longest one wins.
+     */
+    public void setSamplingRate(String urlFragment, double samplingRate) {
+        endpointSamplingRates.put(urlFragment, samplingRate);
+    }
+
+    public void removeSamplingRate(String urlFragment) {
+        endpointSamplingRates.remove(urlFragment);
+    }
+
+    @Override
+    public boolean shouldLog(HttpMethod method, String url) {
+        if (!logger.isDebugEnabled() && !(summaryEnabled && logger.isInfoEnabled())) {
+            return false;
+        }
+
+        Double endpointRate = getEndpointSamplingRate(url);
+        double rate = (endpointRate != null) ? endpointRate : samplingRate;
+        if (rate >= 1.0) {
+            return true;
+        }
+
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    @Override
+    public void logRequest(HttpMethod method, String url, HttpHeaders headers, Object requestObject, JsonCodec jsonCodec) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+
+        logger.debug("> {} {}", method, url);
+        logger.debug("> headers: {}", headers);
+        if (requestObject != null) {
+            // Serialization stops as soon as the truncation limit is reached
+            BoundedWriter writer = new BoundedWriter(maxBodyLength);
+            try {
+                jsonCodec.getWriter(requestObject.getClass()).writeValue(writer, requestObject);
+                logger.debug("> data:\n  {}", writer);
+            } catch (IOException ex) {
+                if (writer.isTruncated()) {
+                    logger.debug("> data:\n  {}... (truncated)", writer);
+                } else {
+                    logger.debug("> data: <not serializable: {}>", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void logResponse(HttpMethod method, String url, HttpStatus statusCode, HttpHeaders headers, byte[] responseBody, long elapsedNanos) {
+        int length = (responseBody != null) ? responseBody.length : 0;
+
+        if (summaryEnabled) {
+            logger.info("{} {} [{}] {} ms {} bytes", method, url, statusCode.value(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), length);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("< {} {} [{}] {} ms", method, url, statusCode, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            logger.debug("< headers: {}", headers);
+            if (length > 0) {
+                String content = new String(responseBody, 0, Math.min(length, maxBodyLength), StandardCharsets.UTF_8);
+                logger.debug("< data:\n  {}", (length > maxBodyLength) ? content + "... (" + length + " bytes)" : content);
+            }
+        }
+    }
+
+    private Double getEndpointSamplingRate(String url) {
+        if (endpointSamplingRates.isEmpty()) {
+            return null;
+        }
+
+        Double rate = null;
+        int matchLength = -1;
+        for (Map.Entry<String, Double> entry : endpointSamplingRates.entrySet()) {
+            String urlFragment = entry.getKey();
+            if (urlFragment.length() > matchLength && url.contains(urlFragment)) {
+                rate = entry.getValue();
+                matchLength = urlFragment.length();
+            }
+        }
+
+        return rate;
+    }
+
+    /**
+     * Writer keeping at most a given number of characters, failing the
+     * writes beyond them.
+     */
+    private static class BoundedWriter extends Writer {
+
+        private final StringBuilder content = new StringBuilder();
+        private final int maxLength;
+        private boolean truncated;
+
+        BoundedWriter(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int remaining = maxLength - content.length();
+            if (length > remaining) {
+                content.append(buffer, offset, Math.max(remaining, 0));
+                truncated = true;
+                throw new IOException("Truncated at " + maxLength + " chars");
+            }
+
+            content.append(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return content.toString();
+        }
+    }
+}
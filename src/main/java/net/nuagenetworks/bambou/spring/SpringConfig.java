@@ -26,6 +26,7 @@
 */
 package net.nuagenetworks.bambou.spring;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -37,8 +38,12 @@ import net.nuagenetworks.bambou.service.RestClientTemplate;
 @ComponentScan("net.nuagenetworks")
 public class SpringConfig {
 
+    // Selected with e.g. -Dbambou.transport=HTTP_2
+    @Value("${bambou.transport:HTTP_1_1}")
+    private RestClientTemplate.Transport transport;
+
     @Bean
     public RestOperations restOperations() {
-        return new RestClientTemplate();
+        return new RestClientTemplate(transport);
     }
 }
@@ -26,21 +26,9 @@
 */
 package net.nuagenetworks.bambou.util;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import net.nuagenetworks.bambou.RestException;
 import net.nuagenetworks.bambou.RestObject;
+import net.nuagenetworks.bambou.metadata.EntityMetadata;
 
 public class BambouUtils {
 
@@ -48,12 +36,11 @@ public class BambouUtils {
     private static final String EMBEDED_METADATA_PARAM = "embeddedMetadata";
 
     public static String toString(Object content) throws RestException {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(content);
-        } catch (JsonProcessingException ex) {
-            throw new RestException(ex);
-        }
+        return toString(content, JsonCodec.getSharedInstance());
+    }
+
+    public static String toString(Object content, JsonCodec jsonCodec) throws RestException {
+        return jsonCodec.writeValueAsString(content);
     }
 
     @SuppressWarnings("unchecked")
@@ -62,13 +49,8 @@ public class BambouUtils {
         return getArrayClass(restObjClass);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> Class<T[]> getArrayClass(Class<T> restObjClass) throws RestException {
-        try {
-            return (Class<T[]>) Class.forName("[L" + restObjClass.getName() + ";");
-        } catch (ClassNotFoundException ex) {
-            throw new RestException(ex);
-        }
+        return EntityMetadata.forClass(restObjClass).getArrayClass();
     }
 
     public static void copyJsonProperties(RestObject fromRestObj, RestObject toRestObj) throws RestException {
@@ -76,22 +58,17 @@ public class BambouUtils {
             return;
         }
 
-        List<Field> fields = getAllFields(fromRestObj.getClass());
-        for (Field field : fields) {
-            if (field.getAnnotation(JsonProperty.class) != null) {
-                PropertyDescriptor pd = getPropertyDescriptor(toRestObj, field.getName());
-                if (pd != null) {
-                    Object value = getRestObjectProperty(pd, fromRestObj);
-                    setRestObjectProperty(pd, toRestObj, value);
-                }
-            }
-        }
+        PropertyCopier.forClass(fromRestObj.getClass()).copy(fromRestObj, toRestObj);
     }
 
     public static <T extends RestObject> void setTemplateId(T restObj, RestObject template) throws RestException {
-        PropertyDescriptor pd = getPropertyDescriptor(restObj, "templateID");
-        if (pd != null) {
-            setRestObjectProperty(pd, restObj, template.getId());
+        PropertyAccessor accessor = PropertyCopier.forClass(restObj.getClass()).getAccessor("templateID");
+        if (accessor != null && accessor.isWritable()) {
+            try {
+                accessor.set(restObj, template.getId());
+            } catch (RuntimeException ex) {
+                throw new RestException(ex);
+            }
         } else {
             throw new RestException(String.format("Cannot instantiate a child that does not have a templateID property: %s", restObj));
         }
@@ -112,48 +89,4 @@ public class BambouUtils {
             return RESPONSE_CHOICE_PARAM + '=' + responseChoice.intValue();
         }
     }
-
-    private static PropertyDescriptor getPropertyDescriptor(RestObject restObject, String propertyName) throws RestException {
-        try {
-            for (PropertyDescriptor pd : Introspector.getBeanInfo(restObject.getClass()).getPropertyDescriptors()) {
-                if (pd.getName().equals(propertyName)) {
-                    return pd;
-                }
-            }
-        } catch (IntrospectionException ex) {
-            throw new RestException(ex);
-        }
-
-        return null;
-    }
-
-    private static void setRestObjectProperty(PropertyDescriptor pd, RestObject restObject, Object value) throws RestException {
-        try {
-            pd.getWriteMethod().invoke(restObject, value);
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            throw new RestException(ex);
-        }
-    }
-
-    private static Object getRestObjectProperty(PropertyDescriptor pd, RestObject restObject) throws RestException {
-        try {
-            return pd.getReadMethod().invoke(restObject);
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            throw new RestException(ex);
-        }
-    }
-
-    private static List<Field> getAllFields(List<Field> fields, Class<?> type) {
-        fields.addAll(Arrays.asList(type.getDeclaredFields()));
-
-        if (type.getSuperclass() != null) {
-            fields = getAllFields(fields, type.getSuperclass());
-        }
-
-        return fields;
-    }
-
-    private static List<Field> getAllFields(Class<?> type) {
-        return getAllFields(new LinkedList<Field>(), type);
-    }
 }
@@ -0,0 +1,175 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.nuagenetworks.bambou.RestException;
+import net.nuagenetworks.bambou.metadata.RestEntityModule;
+
+/**
+ * Holds the single configured {@link ObjectMapper} used to encode and decode
+ * JSON content, along with {@link ObjectReader} and {@link ObjectWriter}
+ * instances cached per type. Readers and writers are immutable and can be
+ * shared between threads, so a codec is meant to be created once and reused
+ * for every request.
+ */
+public class JsonCodec {
+
+    private static final JsonCodec sharedInstance = new JsonCodec();
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter defaultWriter;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    public JsonCodec() {
+        this(createObjectMapper());
+    }
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.defaultWriter = objectMapper.writer();
+    }
+
+    public static JsonCodec getSharedInstance() {
+        return sharedInstance;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public ObjectReader getReader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = objectMapper.readerFor(type);
+            ObjectReader existingReader = readers.putIfAbsent(type, reader);
+            if (existingReader != null) {
+                reader = existingReader;
+            }
+        }
+
+        return reader;
+    }
+
+    public ObjectWriter getWriter(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = objectMapper.writerFor(type);
+            ObjectWriter existingWriter = writers.putIfAbsent(type, writer);
+            if (existingWriter != null) {
+                writer = existingWriter;
+            }
+        }
+
+        return writer;
+    }
+
+    public <T> T readValue(byte[] content, Class<T> type) throws RestException {
+        try {
+            return getReader(type).readValue(content);
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public <T> T readValue(InputStream content, Class<T> type) throws RestException {
+        try {
+            return getReader(type).readValue(content);
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public <T> T treeToValue(JsonNode content, Class<T> type) throws RestException {
+        try {
+            return getReader(type).readValue(content);
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public JsonNode readTree(byte[] content) throws RestException {
+        try {
+            return objectMapper.readTree(content);
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public JsonNode readTree(String content) throws RestException {
+        try {
+            return objectMapper.readTree(content);
+        } catch (IOException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public JsonNode valueToTree(Object content) throws RestException {
+        try {
+            return objectMapper.valueToTree(content);
+        } catch (IllegalArgumentException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public String writeValueAsString(Object content) throws RestException {
+        try {
+            ObjectWriter writer = (content != null) ? getWriter(content.getClass()) : defaultWriter;
+            return writer.writeValueAsString(content);
+        } catch (JsonProcessingException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public byte[] writeValueAsBytes(Object content) throws RestException {
+        try {
+            ObjectWriter writer = (content != null) ? getWriter(content.getClass()) : defaultWriter;
+            return writer.writeValueAsBytes(content);
+        } catch (JsonProcessingException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
+        objectMapper.registerModule(new RestEntityModule());
+        return objectMapper;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou.util;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import net.nuagenetworks.bambou.RestException;
+import net.nuagenetworks.bambou.metadata.RestEntityDescriptor;
+import net.nuagenetworks.bambou.metadata.RestEntityDescriptors;
+
+/**
+ * Copies the {@link JsonProperty} attributes of a class from one instance to
+ * another.
+ * <p>
+ * The accessors are resolved once per class (bean introspection, field walk)
+ * and compiled into lambdas through {@link LambdaMetafactory}, so a copy is a
+ * straight loop of getter/setter calls with no reflection involved. Copiers
+ * are cached per class and obtained through {@link #forClass(Class)}. When
+ * the class has a generated {@link RestEntityDescriptor}, its copier is used
+ * and no introspection takes place.
+ */
+public final class PropertyCopier {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final ClassValue<PropertyCopier> copiers = new ClassValue<PropertyCopier>() {
+        @Override
+        protected PropertyCopier computeValue(Class<?> type) {
+            RestEntityDescriptor<?> descriptor = RestEntityDescriptors.get(type);
+            if (descriptor != null) {
+                return descriptor.getPropertyCopier();
+            }
+
+            try {
+                return introspect(type);
+            } catch (IntrospectionException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
+
+    private final Class<?> type;
+    private final PropertyAccessor[] copiedAccessors;
+    private final Map<String, PropertyAccessor> accessors;
+
+    /**
+     * @param type
+     *            the class the copier applies to
+     * @param copiedAccessors
+     *            the accessors of the properties copied by
+     *            {@link #copy(Object, Object)}, all readable and writable
+     * @param accessors
+     *            all the bean properties of the class, by name
+     */
+    public PropertyCopier(Class<?> type, List<PropertyAccessor> copiedAccessors, Map<String, PropertyAccessor> accessors) {
+        this.type = type;
+        this.copiedAccessors = copiedAccessors.toArray(new PropertyAccessor[copiedAccessors.size()]);
+        this.accessors = Collections.unmodifiableMap(new HashMap<String, PropertyAccessor>(accessors));
+    }
+
+    public static PropertyCopier forClass(Class<?> type) throws RestException {
+        try {
+            return copiers.get(type);
+        } catch (IllegalStateException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public PropertyAccessor getAccessor(String propertyName) {
+        return accessors.get(propertyName);
+    }
+
+    public void copy(Object fromBean, Object toBean) throws RestException {
+        try {
+            for (PropertyAccessor accessor : copiedAccessors) {
+                accessor.copy(fromBean, toBean);
+            }
+        } catch (RuntimeException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    /**
+     * Copies the properties like {@link #copy(Object, Object)}, except that
+     * the lists, sets and maps deserialized by Jackson are copied as well, so
+     * that modifying them in place on one bean does not affect the other.
+     */
+    public void copyDetached(Object fromBean, Object toBean) throws RestException {
+        try {
+            for (PropertyAccessor accessor : copiedAccessors) {
+                accessor.set(toBean, detach(accessor.get(fromBean)));
+            }
+        } catch (RuntimeException ex) {
+            throw new RestException(ex);
+        }
+    }
+
+    private static Object detach(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value.getClass() == ArrayList.class) {
+            return new ArrayList<Object>((List<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            return new HashSet<Object>((Set<?>) value);
+        } else if (value.getClass() == LinkedHashSet.class) {
+            return new LinkedHashSet<Object>((Set<?>) value);
+        } else if (value.getClass() == HashMap.class) {
+            return new HashMap<Object, Object>((Map<?, ?>) value);
+        } else if (value.getClass() == LinkedHashMap.class) {
+            return new LinkedHashMap<Object, Object>((Map<?, ?>) value);
+        }
+
+        return value;
+    }
+
+    private static PropertyCopier introspect(Class<?> type) throws IntrospectionException {
+        Map<String, PropertyAccessor> accessors = new HashMap<String, PropertyAccessor>();
+        for (PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+            Method readMethod = pd.getReadMethod();
+            Method writeMethod = pd.getWriteMethod();
+            if (readMethod != null || writeMethod != null) {
+                accessors.put(pd.getName(), new PropertyAccessor(pd.getName(), createGetter(readMethod), createSetter(writeMethod)));
+            }
+        }
+
+        // Copy the JSON properties declared anywhere in the class hierarchy
+        // that are exposed through both a getter and a setter
+        List<PropertyAccessor> copiedAccessors = new ArrayList<PropertyAccessor>();
+        for (String fieldName : getJsonPropertyFieldNames(type)) {
+            PropertyAccessor accessor = accessors.get(fieldName);
+            if (accessor != null && accessor.isReadable() && accessor.isWritable()) {
+                copiedAccessors.add(accessor);
+            }
+        }
+
+        return new PropertyCopier(type, copiedAccessors, accessors);
+    }
+
+    private static Set<String> getJsonPropertyFieldNames(Class<?> type) {
+        Set<String> fieldNames = new LinkedHashSet<String>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getAnnotation(JsonProperty.class) != null) {
+                    fieldNames.add(field.getName());
+                }
+            }
+        }
+
+        return fieldNames;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createGetter(Method readMethod) {
+        if (readMethod == null) {
+            return null;
+        }
+
+        try {
+            if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                readMethod.setAccessible(true);
+            }
+
+            MethodHandle handle = lookup.unreflect(readMethod);
+            if (isLinkable(readMethod)) {
+                MethodType instantiatedType = MethodType.methodType(wrap(readMethod.getReturnType()), readMethod.getDeclaringClass());
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class), handle, instantiatedType);
+                return (Function<Object, Object>) site.getTarget().invoke();
+            }
+
+            // Fall back on invoking the method handle directly
+            final MethodHandle genericHandle = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return new Function<Object, Object>() {
+                @Override
+                public Object apply(Object bean) {
+                    try {
+                        return genericHandle.invokeExact(bean);
+                    } catch (RuntimeException | Error ex) {
+                        throw ex;
+                    } catch (Throwable ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            };
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Cannot create getter for " + readMethod, ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> createSetter(Method writeMethod) {
+        if (writeMethod == null) {
+            return null;
+        }
+
+        try {
+            if (!Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers())) {
+                writeMethod.setAccessible(true);
+            }
+
+            MethodHandle handle = lookup.unreflect(writeMethod);
+            if (isLinkable(writeMethod) && writeMethod.getReturnType() == void.class) {
+                MethodType instantiatedType = MethodType.methodType(void.class, writeMethod.getDeclaringClass(), wrap(writeMethod.getParameterTypes()[0]));
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class), handle, instantiatedType);
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            }
+
+            // Fall back on invoking the method handle directly
+            final MethodHandle genericHandle = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return new BiConsumer<Object, Object>() {
+                @Override
+                public void accept(Object bean, Object value) {
+                    try {
+                        genericHandle.invokeExact(bean, value);
+                    } catch (RuntimeException | Error ex) {
+                        throw ex;
+                    } catch (Throwable ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            };
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Cannot create setter for " + writeMethod, ex);
+        }
+    }
+
+    private static boolean isLinkable(Method method) {
+        // Lambdas are spun in this class' loader: only use them when the
+        // accessor's class is public and visible from it
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
+
+        try {
+            return Class.forName(declaringClass.getName(), false, PropertyCopier.class.getClassLoader()) == declaringClass;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
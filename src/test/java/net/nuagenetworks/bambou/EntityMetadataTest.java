@@ -0,0 +1,73 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+
+import net.nuagenetworks.bambou.metadata.EntityMetadata;
+import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestChildObject;
+import net.nuagenetworks.bambou.testobj.TestRootObject;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
+public class EntityMetadataTest {
+
+    @Test
+    public void testMetadataIsCachedPerClass() {
+        EntityMetadata metadata = EntityMetadata.forClass(TestChildObject.class);
+        Assert.assertSame(metadata, EntityMetadata.forClass(TestChildObject.class));
+        Assert.assertNotSame(metadata, EntityMetadata.forClass(TestRootObject.class));
+        Assert.assertSame(TestChildObject.class, metadata.getEntityClass());
+        Assert.assertSame(TestChildObject[].class, metadata.getArrayClass());
+        Assert.assertTrue(metadata.isRestEntity());
+        Assert.assertEquals("childobject", metadata.getRestName());
+        Assert.assertEquals("childobject", metadata.getResourceName());
+        Assert.assertEquals("/childobject", metadata.getResourcePath());
+    }
+
+    @Test
+    public void testResourceUrls() {
+        EntityMetadata metadata = EntityMetadata.forClass(TestChildObject.class);
+        Assert.assertEquals("https://vsd:8443/nuage/api/v4/childobject", metadata.getResourceUrl("https://vsd:8443/nuage/api/v4"));
+        Assert.assertEquals("https://vsd:8443/nuage/api/v4/childobject/1", metadata.getResourceUrl("https://vsd:8443/nuage/api/v4", "1"));
+    }
+
+    @Test
+    public void testMetadataOfNonEntityClass() {
+        EntityMetadata metadata = EntityMetadata.forClass(RestObject.class);
+        Assert.assertFalse(metadata.isRestEntity());
+        Assert.assertNull(metadata.getRestName());
+        Assert.assertNull(metadata.getDescriptor());
+        Assert.assertSame(RestObject[].class, metadata.getArrayClass());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestChildObject;
+import net.nuagenetworks.bambou.util.JsonCodec;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
+public class JsonCodecTest {
+
+    @Test
+    public void testReaderIsCachedPerType() {
+        JsonCodec codec = new JsonCodec();
+        Assert.assertSame(codec.getReader(TestChildObject.class), codec.getReader(TestChildObject.class));
+        Assert.assertSame(codec.getReader(TestChildObject[].class), codec.getReader(TestChildObject[].class));
+        Assert.assertNotSame(codec.getReader(TestChildObject.class), codec.getReader(TestChildObject[].class));
+    }
+
+    @Test
+    public void testReadArrayFromBytes() throws RestException {
+        JsonCodec codec = new JsonCodec();
+        byte[] content = "[{ \"ID\": \"1\", \"myOtherProperty\": \"a\" }, { \"ID\": \"2\" }]".getBytes();
+
+        TestChildObject[] childObjects = codec.readValue(content, TestChildObject[].class);
+        Assert.assertEquals(2, childObjects.length);
+        Assert.assertEquals("1", childObjects[0].getId());
+        Assert.assertEquals("a", childObjects[0].getMyOtherProperty());
+        Assert.assertEquals("2", childObjects[1].getId());
+    }
+
+    @Test
+    public void testWriteAndReadTree() throws RestException {
+        JsonCodec codec = new JsonCodec();
+        TestChildObject childObject = new TestChildObject();
+        childObject.setId("1");
+        childObject.setTemplateID("2");
+
+        JsonNode node = codec.readTree(codec.writeValueAsBytes(childObject));
+        Assert.assertEquals("1", node.get("ID").asText());
+        Assert.assertEquals("2", node.get("templateID").asText());
+
+        TestChildObject copy = codec.treeToValue(node, TestChildObject.class);
+        Assert.assertEquals("2", copy.getTemplateID());
+        Assert.assertEquals("null", codec.writeValueAsString(null));
+    }
+}
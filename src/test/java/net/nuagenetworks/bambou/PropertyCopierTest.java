@@ -0,0 +1,98 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+
+import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestChildObject;
+import net.nuagenetworks.bambou.testobj.TestChildObjectFetcher;
+import net.nuagenetworks.bambou.testobj.TestObject;
+import net.nuagenetworks.bambou.testobj.TestRootObject;
+import net.nuagenetworks.bambou.util.BambouUtils;
+import net.nuagenetworks.bambou.util.PropertyAccessor;
+import net.nuagenetworks.bambou.util.PropertyCopier;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
+public class PropertyCopierTest {
+
+    @Test
+    public void testCopierIsCachedPerClass() throws RestException {
+        Assert.assertSame(PropertyCopier.forClass(TestChildObject.class), PropertyCopier.forClass(TestChildObject.class));
+        Assert.assertNotSame(PropertyCopier.forClass(TestChildObject.class), PropertyCopier.forClass(TestObject.class));
+    }
+
+    @Test
+    public void testCopyInheritedProperties() throws RestException {
+        TestRootObject fromObject = new TestRootObject();
+        fromObject.setId("1");
+        fromObject.setParentId("2");
+        fromObject.setApiKey("3");
+        fromObject.setTestAttr("4");
+
+        TestRootObject toObject = new TestRootObject();
+        BambouUtils.copyJsonProperties(fromObject, toObject);
+
+        Assert.assertEquals("1", toObject.getId());
+        Assert.assertEquals("2", toObject.getParentId());
+        Assert.assertEquals("3", toObject.getApiKey());
+        Assert.assertEquals("4", toObject.getTestAttr());
+    }
+
+    @Test
+    public void testCopyDoesNotTouchIgnoredProperties() throws RestException {
+        TestObject fromObject = new TestObject();
+        fromObject.setMyProperty("value");
+
+        TestObject toObject = new TestObject();
+        TestChildObjectFetcher fetcher = toObject.getChildObjectFetcher();
+        BambouUtils.copyJsonProperties(fromObject, toObject);
+
+        Assert.assertEquals("value", toObject.getMyProperty());
+        Assert.assertSame(fetcher, toObject.getChildObjectFetcher());
+    }
+
+    @Test
+    public void testTemplateIdAccessor() throws RestException {
+        PropertyAccessor accessor = PropertyCopier.forClass(TestChildObject.class).getAccessor("templateID");
+        Assert.assertNotNull(accessor);
+        Assert.assertTrue(accessor.isReadable());
+        Assert.assertTrue(accessor.isWritable());
+
+        TestChildObject template = new TestChildObject();
+        template.setId("template");
+        TestChildObject childObject = new TestChildObject();
+        BambouUtils.setTemplateId(childObject, template);
+        Assert.assertEquals("template", accessor.get(childObject));
+    }
+}
@@ -26,6 +26,13 @@
 */
 package net.nuagenetworks.bambou;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Assert;
@@ -33,16 +40,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestOperations;
 
 import net.nuagenetworks.bambou.service.RestClientService;
+import net.nuagenetworks.bambou.service.Slf4jWireLogger;
+import net.nuagenetworks.bambou.service.WireLogger;
 import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestChildObject;
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
@@ -74,6 +89,126 @@ public class RestClientServiceTest {
         EasyMock.verify(restOperations);
     }
 
+    @Test
+    public void testSendRequestWithWireLogger() throws RestException {
+        HttpMethod method = HttpMethod.GET;
+        String url = "http://vsd";
+
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(method), EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                .andReturn(new ResponseEntity<byte[]>("\"test\"".getBytes(), HttpStatus.OK));
+        EasyMock.replay(restOperations);
+
+        final List<String> loggedEvents = new ArrayList<String>();
+        WireLogger wireLogger = new WireLogger() {
+            @Override
+            public boolean shouldLog(HttpMethod method, String url) {
+                return true;
+            }
+
+            @Override
+            public void logRequest(HttpMethod method, String url, HttpHeaders headers, Object requestObject, JsonCodec jsonCodec) {
+                loggedEvents.add("> " + method + " " + url);
+            }
+
+            @Override
+            public void logResponse(HttpMethod method, String url, HttpStatus statusCode, HttpHeaders headers, byte[] responseBody, long elapsedNanos) {
+                loggedEvents.add("< " + statusCode.value() + " " + responseBody.length);
+            }
+        };
+
+        WireLogger defaultWireLogger = restService.getWireLogger();
+        try {
+            restService.setWireLogger(wireLogger);
+            ResponseEntity<String> response = restService.sendRequest(method, url, null, null, String.class);
+            Assert.assertEquals("test", response.getBody());
+        } finally {
+            restService.setWireLogger(defaultWireLogger);
+        }
+
+        Assert.assertEquals(Arrays.asList("> GET http://vsd", "< 200 6"), loggedEvents);
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testWireLoggerSampling() {
+        Slf4jWireLogger wireLogger = new Slf4jWireLogger();
+
+        // Without the summary, exchanges are only logged at DEBUG level
+        Assert.assertFalse(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/domains"));
+
+        wireLogger.setSummaryEnabled(true);
+        Assert.assertTrue(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/domains"));
+
+        wireLogger.setSamplingRate("/events", 0.0);
+        wireLogger.setSamplingRate("/enterprises", 1.0);
+
+        Assert.assertFalse(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/events"));
+        Assert.assertTrue(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/enterprises"));
+
+        wireLogger.setSamplingRate(0.0);
+        Assert.assertFalse(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/domains"));
+        Assert.assertTrue(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/enterprises"));
+    }
+
+    @Test
+    public void testWireLoggerSummary() {
+        Slf4jWireLogger wireLogger = new Slf4jWireLogger();
+        wireLogger.setSummaryEnabled(true);
+
+        PrintStream defaultErr = System.err;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setErr(new PrintStream(output, true));
+            Assert.assertTrue(wireLogger.shouldLog(HttpMethod.GET, "http://vsd/api/v5_0/domains"));
+            wireLogger.logResponse(HttpMethod.GET, "http://vsd/api/v5_0/domains", HttpStatus.OK, new HttpHeaders(), "[]".getBytes(),
+                    TimeUnit.MILLISECONDS.toNanos(12));
+        } finally {
+            System.setErr(defaultErr);
+        }
+
+        Assert.assertTrue(output.toString(), output.toString().contains("GET http://vsd/api/v5_0/domains [200] 12 ms 2 bytes"));
+    }
+
+    @Test
+    public void testSendStreamingRequest() throws RestException {
+        HttpMethod method = HttpMethod.GET;
+        String url = "http://vsd";
+
+        EasyMock.reset(restOperations);
+        expectStreamingRequest(url, method, "[{ \"ID\": \"1\" }, null, { \"ID\": \"2\" }]", HttpStatus.OK);
+        EasyMock.replay(restOperations);
+
+        List<String> ids = new ArrayList<String>();
+        ResponseEntity<Void> response = restService.sendStreamingRequest(method, url, null, TestChildObject.class, childObject -> ids.add(childObject.getId()));
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals(Arrays.asList("1", "2"), ids);
+
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testStreamingErrorResponse() throws RestException {
+        HttpMethod method = HttpMethod.GET;
+        String url = "http://vsd";
+
+        EasyMock.reset(restOperations);
+        expectStreamingRequest(url, method, "{ \"internalErrorCode\": \"1234\" }", HttpStatus.BAD_REQUEST);
+        EasyMock.replay(restOperations);
+
+        try {
+            restService.sendStreamingRequest(method, url, null, TestChildObject.class, childObject -> Assert.fail());
+            Assert.fail();
+        } catch (RestStatusCodeException ex) {
+            // Expect exception
+            Assert.assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+            Assert.assertEquals("1234", ex.getInternalErrorCode());
+        }
+
+        EasyMock.verify(restOperations);
+    }
+
     @Test
     public void testErrorResponseNoContent() throws RestException {
         HttpMethod method = HttpMethod.GET;
@@ -176,4 +311,12 @@ public class RestClientServiceTest {
 
         EasyMock.verify(restOperations);
     }
+
+    private void expectStreamingRequest(String url, HttpMethod method, final String responseString, final HttpStatus responseStatus) {
+        EasyMock.expect(restOperations.execute(EasyMock.eq(url), EasyMock.eq(method), EasyMock.anyObject(RequestCallback.class),
+                EasyMock.<ResponseExtractor<Object>> anyObject())).andAnswer(() -> {
+                    ResponseExtractor<?> responseExtractor = (ResponseExtractor<?>) EasyMock.getCurrentArguments()[3];
+                    return responseExtractor.extractData(new MockClientHttpResponse(responseString.getBytes(), responseStatus));
+                });
+    }
 }
@@ -0,0 +1,261 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.sun.net.httpserver.HttpServer;
+
+import net.nuagenetworks.bambou.service.CompressionListener;
+import net.nuagenetworks.bambou.service.RestClientTemplate;
+
+public class RestClientTemplateTest {
+
+    private HttpServer server;
+    private RestClientTemplate template;
+    private ExecutorService serverExecutor;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] content = ("[" + String.join(",", Collections.nCopies(1000, "{\"ID\": \"1\"}")) + "]").getBytes();
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressedContent)) {
+                    out.write(content);
+                }
+                content = compressedContent.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        server.createContext("/echo", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            byte[] content = in.readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] content = "[]".getBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        server.createContext("/", exchange -> {
+            byte[] content = "[]".getBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        template = new RestClientTemplate();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        template.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testPoolConfiguration() {
+        template.setMaxConnections(10);
+        template.setMaxConnectionsPerRoute(5);
+        Assert.assertEquals(10, template.getPoolStats().getMax());
+
+        // Reconfiguring the client keeps the pool
+        template.setSocketTimeout(1000);
+        template.setKeepAlive(1000);
+        Assert.assertEquals(10, template.getPoolStats().getMax());
+    }
+
+    @Test
+    public void testConnectionReused() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        template.getForObject(url, String.class);
+        template.setSocketTimeout(1000);
+        template.getForObject(url, String.class);
+
+        // The connection is kept alive across client changes
+        PoolStats stats = template.getPoolStats();
+        Assert.assertEquals(0, stats.getLeased());
+        Assert.assertEquals(0, stats.getPending());
+        Assert.assertEquals(1, stats.getAvailable());
+    }
+
+    @Test
+    public void testUnclosedTemplateIsCollected() throws InterruptedException {
+        // The connection eviction task does not keep the template alive
+        WeakReference<RestClientTemplate> unclosedTemplate = new WeakReference<RestClientTemplate>(new RestClientTemplate());
+        for (int i = 0; i < 50 && unclosedTemplate.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull(unclosedTemplate.get());
+    }
+
+    @Test
+    public void testPoolDrainedOnReplacement() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+
+        // The request in flight completes on the replaced pool
+        CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> template.getForObject(url, String.class));
+        Thread.sleep(100);
+        template.disableCertificateValidation();
+        Assert.assertEquals("[]", response.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testHttp2TransportWithoutPool() throws IOException {
+        try (RestClientTemplate http2Template = new RestClientTemplate(RestClientTemplate.Transport.HTTP_2)) {
+            Assert.assertEquals(0, http2Template.getPoolStats().getAvailable());
+            Assert.assertEquals("[]", http2Template.getForObject("http://127.0.0.1:" + server.getAddress().getPort() + "/", String.class));
+        }
+    }
+
+    @Test
+    public void testHttp2Transport() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        template.setTransport(RestClientTemplate.Transport.HTTP_2);
+
+        // The test server only speaks HTTP/1.1
+        ResponseEntity<String> response = template.getForEntity(url + "/", String.class);
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals("[]", response.getBody());
+        Assert.assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+
+        Assert.assertEquals("[\"a\"]", template.postForObject(url + "/echo", Arrays.asList("a"), String.class));
+    }
+
+    @Test
+    public void testResponseDecompression() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/gzip";
+        final AtomicLong decompressedLength = new AtomicLong();
+        template.getCompressionInterceptor().setListener(new CompressionListener() {
+            @Override
+            public void requestCompressed(HttpMethod method, URI uri, String encoding, long originalLength, long compressedLength) {
+            }
+
+            @Override
+            public void responseDecompressed(HttpMethod method, URI uri, String encoding, long compressedLength, long length) {
+                Assert.assertEquals("gzip", encoding);
+                Assert.assertTrue(compressedLength < length);
+                decompressedLength.set(length);
+            }
+        });
+
+        for (RestClientTemplate.Transport transport : RestClientTemplate.Transport.values()) {
+            template.setTransport(transport);
+            decompressedLength.set(0);
+
+            ResponseEntity<String> response = template.getForEntity(url, String.class);
+            Assert.assertFalse(response.getHeaders().containsKey("Content-Encoding"));
+            Assert.assertEquals(response.getBody().length(), decompressedLength.get());
+            Assert.assertTrue(response.getBody().startsWith("[{\"ID\": \"1\"},"));
+        }
+    }
+
+    @Test
+    public void testRequestCompression() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+        final AtomicLong originalLength = new AtomicLong();
+        template.getCompressionInterceptor().setRequestCompressionThreshold(100);
+        template.getCompressionInterceptor().setListener(new CompressionListener() {
+            @Override
+            public void requestCompressed(HttpMethod method, URI uri, String encoding, long length, long compressedLength) {
+                Assert.assertTrue(compressedLength < length);
+                originalLength.set(length);
+            }
+
+            @Override
+            public void responseDecompressed(HttpMethod method, URI uri, String encoding, long compressedLength, long decompressedLength) {
+            }
+        });
+
+        // Below the threshold
+        Assert.assertEquals("[\"a\"]", template.postForObject(url, Arrays.asList("a"), String.class));
+        Assert.assertEquals(0, originalLength.get());
+
+        List<String> body = Collections.nCopies(100, "a");
+        String response = template.postForObject(url, body, String.class);
+        Assert.assertEquals(401, response.length());
+        Assert.assertEquals(401, originalLength.get());
+    }
+}
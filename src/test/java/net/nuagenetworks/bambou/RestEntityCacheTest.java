@@ -0,0 +1,192 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import net.nuagenetworks.bambou.cache.LruRestEntityCache;
+import net.nuagenetworks.bambou.cache.RestEntityCache;
+import net.nuagenetworks.bambou.cache.RestEntityCachePushListener;
+import net.nuagenetworks.bambou.cache.RestEntityCacheStats;
+
+public class RestEntityCacheTest {
+
+    private long now;
+
+    private LruRestEntityCache cache = new LruRestEntityCache() {
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    };
+
+    @Test
+    public void testReadThrough() throws RestException {
+        AtomicInteger loadCount = new AtomicInteger();
+        RestEntityCache.Loader loader = () -> value(loadCount.incrementAndGet());
+
+        Assert.assertEquals(value(1), cache.get("domain", "1", loader));
+        Assert.assertEquals(value(1), cache.get("domain", "1", loader));
+        Assert.assertEquals(value(2), cache.get("domain", "2", loader));
+        Assert.assertEquals(2, loadCount.get());
+
+        cache.invalidate("domain", "1");
+        Assert.assertEquals(value(3), cache.get("domain", "1", loader));
+
+        RestEntityCacheStats stats = cache.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(3, stats.getMissCount());
+        Assert.assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testTimeToLivePerEntityType() throws RestException {
+        cache.setTimeToLive(1, TimeUnit.MINUTES);
+        cache.setTimeToLive("enterprise", 10, TimeUnit.MINUTES);
+        cache.put("domain", "1", value(1));
+        cache.put("enterprise", "1", value(1));
+
+        now += TimeUnit.MINUTES.toNanos(2);
+        Assert.assertEquals(value(1), cache.get("enterprise", "1", () -> value(2)));
+        Assert.assertEquals(value(2), cache.get("domain", "1", () -> value(2)));
+        Assert.assertEquals(1, cache.getStats().getExpirationCount());
+    }
+
+    @Test
+    public void testNegativeCaching() throws RestException {
+        AtomicInteger loadCount = new AtomicInteger();
+        RestEntityCache.Loader loader = () -> {
+            loadCount.incrementAndGet();
+            throw new RestStatusCodeException(HttpStatus.NOT_FOUND);
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("domain", "1", loader);
+                Assert.fail();
+            } catch (RestStatusCodeException ex) {
+                Assert.assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+            }
+        }
+
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals(1, cache.getStats().getNegativeHitCount());
+
+        // Other errors are not cached
+        try {
+            cache.get("domain", "2", () -> {
+                throw new RestStatusCodeException(HttpStatus.SERVICE_UNAVAILABLE);
+            });
+            Assert.fail();
+        } catch (RestStatusCodeException ex) {
+            Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        }
+        Assert.assertEquals(value(2), cache.get("domain", "2", () -> value(2)));
+        Assert.assertEquals(1, cache.getStats().getLoadFailureCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws RestException {
+        cache.setMaximumSize(2);
+        cache.put("domain", "1", value(1));
+        cache.put("domain", "2", value(2));
+        cache.get("domain", "1", () -> value(0));
+        cache.put("domain", "3", value(3));
+
+        Assert.assertEquals(value(1), cache.get("domain", "1", () -> value(0)));
+        Assert.assertEquals(value(0), cache.get("domain", "2", () -> value(0)));
+        Assert.assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testRefreshAhead() throws RestException {
+        cache.setExecutor(Runnable::run);
+        cache.setTimeToLive(10, TimeUnit.SECONDS);
+        cache.setRefreshAhead(0.5, 2);
+        AtomicInteger loadCount = new AtomicInteger();
+        RestEntityCache.Loader loader = () -> value(loadCount.incrementAndGet());
+
+        Assert.assertEquals(value(1), cache.get("domain", "1", loader));
+
+        // Entries not read often enough are left to expire
+        now += TimeUnit.SECONDS.toNanos(6);
+        Assert.assertEquals(value(1), cache.get("domain", "1", loader));
+        Assert.assertEquals(1, loadCount.get());
+
+        // Hot entries are reloaded while still being served
+        Assert.assertEquals(value(1), cache.get("domain", "1", loader));
+        Assert.assertEquals(2, loadCount.get());
+        Assert.assertEquals(1, cache.getStats().getRefreshCount());
+
+        now += TimeUnit.SECONDS.toNanos(6);
+        Assert.assertEquals(value(2), cache.get("domain", "1", loader));
+    }
+
+    @Test
+    public void testPushEvents() throws RestException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        RestEntityCachePushListener listener = new RestEntityCachePushListener(cache) {
+            @Override
+            protected long currentTimeMillis() {
+                return 1500;
+            }
+        };
+        cache.put("domain", "1", mapper.readTree("{\"ID\":\"1\",\"name\":\"a\",\"description\":\"b\"}"));
+        cache.put("domain", "2", value(2));
+
+        // Updated entities are patched with the properties they already had
+        listener.onEvent(mapper.readTree("{\"type\":\"UPDATE\",\"entityType\":\"domain\",\"eventReceivedTime\":1000,"
+                + "\"entities\":[{\"ID\":\"1\",\"name\":\"c\",\"other\":\"d\"}]}"));
+        Assert.assertEquals(mapper.readTree("{\"ID\":\"1\",\"name\":\"c\",\"description\":\"b\"}"), cache.getIfPresent("domain", "1"));
+
+        // Deleted entities are invalidated
+        listener.onEvent(mapper.readTree("{\"type\":\"DELETE\",\"entityType\":\"domain\",\"eventReceivedTime\":1300,"
+                + "\"entities\":[{\"ID\":\"2\"}]}"));
+        Assert.assertNull(cache.getIfPresent("domain", "2"));
+
+        Assert.assertEquals(2, listener.getEventCount());
+        Assert.assertEquals(1, listener.getPatchCount());
+        Assert.assertEquals(1, listener.getInvalidationCount());
+        Assert.assertEquals(200, listener.getLastStaleness());
+        Assert.assertEquals(500, listener.getMaxStaleness());
+        Assert.assertEquals(350, listener.getAverageStaleness(), 0);
+    }
+
+    private static JsonNode value(int value) {
+        return JsonNodeFactory.instance.objectNode().put("value", value);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.nuagenetworks.bambou.metadata.RestEntityDescriptor;
+import net.nuagenetworks.bambou.metadata.RestEntityDescriptors;
+import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestChildObject;
+import net.nuagenetworks.bambou.testobj.TestLenientObject;
+import net.nuagenetworks.bambou.testobj.TestRootObject;
+import net.nuagenetworks.bambou.util.JsonCodec;
+import net.nuagenetworks.bambou.util.PropertyCopier;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
+public class RestEntityProcessorTest {
+
+    @Test
+    public void testDescriptorIsGenerated() throws RestException {
+        RestEntityDescriptor<?> descriptor = RestEntityDescriptors.get(TestChildObject.class);
+        Assert.assertNotNull(descriptor);
+        Assert.assertSame(TestChildObject.class, descriptor.getEntityClass());
+        Assert.assertSame(TestChildObject[].class, descriptor.getArrayClass());
+        Assert.assertEquals("childobject", descriptor.getRestName());
+        Assert.assertEquals("childobject", descriptor.getResourceName());
+        Assert.assertNotNull(descriptor.getSerializer());
+        Assert.assertNotNull(descriptor.getDeserializer());
+        Assert.assertSame(descriptor.getPropertyCopier(), PropertyCopier.forClass(TestChildObject.class));
+
+        Assert.assertNull(RestEntityDescriptors.get(RestObject.class));
+        Assert.assertNull(RestEntityDescriptors.get(String.class));
+    }
+
+    @Test
+    public void testGeneratedCodecMatchesJackson() throws Exception {
+        TestRootObject rootObject = new TestRootObject();
+        rootObject.setId("1");
+        rootObject.setUserName("martin");
+        rootObject.setApiKey("2");
+        rootObject.setTestAttr("a");
+
+        JsonCodec codec = new JsonCodec();
+        ObjectMapper reflectiveMapper = new ObjectMapper();
+        String json = codec.writeValueAsString(rootObject);
+        Assert.assertEquals(reflectiveMapper.writeValueAsString(rootObject), json);
+
+        TestRootObject copy = codec.readValue(json.getBytes(), TestRootObject.class);
+        Assert.assertEquals("1", copy.getId());
+        Assert.assertEquals("martin", copy.getUserName());
+        Assert.assertEquals("2", copy.getApiKey());
+        Assert.assertEquals("a", copy.getTestAttr());
+        Assert.assertNull(copy.getPassword());
+    }
+
+    @Test(expected = RestException.class)
+    public void testGeneratedDeserializerRejectsUnknownProperty() throws RestException {
+        new JsonCodec().readValue("{ \"ID\": \"1\", \"unknown\": 1 }".getBytes(), TestChildObject.class);
+    }
+
+    @Test
+    public void testGeneratedDeserializerIgnoresUnknownProperty() throws RestException {
+        RestEntityDescriptor<?> descriptor = RestEntityDescriptors.get(TestLenientObject.class);
+        Assert.assertNotNull(descriptor.getSerializer());
+        Assert.assertNotNull(descriptor.getDeserializer());
+
+        TestLenientObject object = new JsonCodec().readValue("{ \"ID\": \"1\", \"unknown\": { \"a\": [1, 2] }, \"name\": \"a\" }".getBytes(),
+                TestLenientObject.class);
+        Assert.assertEquals("1", object.getId());
+        Assert.assertEquals("a", object.getName());
+    }
+}
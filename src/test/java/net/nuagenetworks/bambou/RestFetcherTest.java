@@ -27,9 +27,16 @@
 package net.nuagenetworks.bambou;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
@@ -41,9 +48,12 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestOperations;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -158,6 +168,27 @@ public class RestFetcherTest {
         TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
         List<TestChildObject> childObjects = fetcher.fetch();
         Assert.assertEquals(3, childObjects.size());
+
+        // Committed objects only send their modifications when saved
+        Assert.assertEquals(0, childObjects.get(0).getModifiedPropertyNames(session).size());
+    }
+
+    @Test
+    public void testFetchWithoutCommit() throws JsonProcessingException, RestException {
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        TestChildObject childObject1 = new TestChildObject();
+        childObject1.setId("1");
+        refChildObjects.add(childObject1);
+
+        // Start session
+        startSession(restOperations, "object/childobject", HttpMethod.GET, HttpStatus.OK, mapper.writeValueAsString(refChildObjects), null);
+
+        // Objects left out of the fetcher are not tracked
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(new TestObject());
+        List<TestChildObject> childObjects = fetcher.fetch(null, null, null, null, null, null, false);
+        Assert.assertEquals(1, childObjects.size());
+        Assert.assertTrue(fetcher.isEmpty());
+        Assert.assertNull(childObjects.get(0).getModifiedPropertyNames(session));
     }
 
     @Test
@@ -223,6 +254,330 @@ public class RestFetcherTest {
         Assert.assertEquals(childObject2, fetcher.get(1));
     }
 
+    @Test
+    public void testFetchUpdatedChild() throws JsonProcessingException, RestException {
+        // Create child objects
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        TestChildObject refChildObject1 = new TestChildObject();
+        refChildObject1.setId("1");
+        refChildObject1.setMyOtherProperty("updated");
+        refChildObjects.add(refChildObject1);
+        TestChildObject refChildObject2 = new TestChildObject();
+        refChildObject2.setId("2");
+        refChildObjects.add(refChildObject2);
+
+        // Start session
+        startSession(restOperations, "object/childobject", HttpMethod.GET, HttpStatus.OK, mapper.writeValueAsString(refChildObjects), null);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        TestChildObject childObject1 = new TestChildObject();
+        childObject1.setId("1");
+        fetcher.add(childObject1);
+        TestChildObject childObject2 = new TestChildObject();
+        fetcher.add(childObject2);
+        Assert.assertTrue(fetcher.contains(childObject1));
+
+        // ID assigned after the child was added
+        childObject2.setId("2");
+        fetcher.fetch();
+
+        // Make sure the existing children are updated in place
+        Assert.assertEquals(2, fetcher.size());
+        Assert.assertSame(childObject1, fetcher.get(0));
+        Assert.assertSame(childObject2, fetcher.get(1));
+        Assert.assertEquals("updated", childObject1.getMyOtherProperty());
+    }
+
+    @Test
+    public void testIterate() throws JsonProcessingException, RestException {
+        // Create child objects
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        for (int i = 0; i < 5; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        Capture<HttpEntity<?>> capturedHttpEntities = startPagedSession(restOperations, "object/childobject",
+                mapper.writeValueAsString(refChildObjects.subList(0, 2)), mapper.writeValueAsString(refChildObjects.subList(2, 4)),
+                mapper.writeValueAsString(refChildObjects.subList(4, 5)));
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        List<String> ids = new ArrayList<String>();
+        for (TestChildObject childObject : fetcher.iterate("filter", null, 2)) {
+            ids.add(childObject.getId());
+        }
+
+        // Make sure all the pages are walked and nothing is committed
+        Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4"), ids);
+        Assert.assertEquals(0, fetcher.size());
+        Assert.assertEquals(3, capturedHttpEntities.getValues().size());
+        for (int page = 0; page < 3; page++) {
+            HttpHeaders headers = capturedHttpEntities.getValues().get(page).getHeaders();
+            Assert.assertEquals(String.valueOf(page), headers.getFirst("X-Nuage-Page"));
+            Assert.assertEquals("2", headers.getFirst("X-Nuage-PageSize"));
+            Assert.assertEquals("filter", headers.getFirst("X-Nuage-Filter"));
+        }
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testStreamStopsOnEmptyPage() throws JsonProcessingException, RestException {
+        // Create child objects
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        for (int i = 0; i < 2; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        startPagedSession(restOperations, "object/childobject", mapper.writeValueAsString(refChildObjects), "[]");
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        Assert.assertEquals(2, fetcher.stream(null, null, 2).count());
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testFetchAll() throws JsonProcessingException, RestException {
+        String apiUrl = "http://vsd/api/v2/";
+        final List<TestChildObject> refChildObjects = new ArrayList<TestChildObject>();
+        for (int i = 0; i < 5; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.add("X-Nuage-Count", String.valueOf(refChildObjects.size()));
+        startSession(restOperations, "object/childobject", HttpMethod.HEAD, HttpStatus.OK, null, responseHeaders);
+
+        // Pages are requested concurrently, answer them by page number
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + "object/childobject"), EasyMock.eq(HttpMethod.HEAD), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq((Class<?>) null))).andReturn(new ResponseEntity(responseHeaders, HttpStatus.OK));
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + "object/childobject"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq(byte[].class))).andAnswer(() -> {
+                    HttpEntity<?> entity = (HttpEntity<?>) EasyMock.getCurrentArguments()[2];
+                    int page = Integer.parseInt(entity.getHeaders().getFirst("X-Nuage-Page"));
+                    List<TestChildObject> pageObjects = refChildObjects.subList(page * 2, Math.min(page * 2 + 2, refChildObjects.size()));
+                    return new ResponseEntity<byte[]>(mapper.writeValueAsBytes(pageObjects), HttpStatus.OK);
+                }).times(3);
+        EasyMock.replay(restOperations);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        List<TestChildObject> childObjects = fetcher.fetchAll(null, null, 2, 2);
+
+        // Make sure the pages are reassembled in order and committed
+        Assert.assertEquals(5, childObjects.size());
+        Assert.assertEquals(5, fetcher.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(String.valueOf(i), childObjects.get(i).getId());
+            Assert.assertEquals(String.valueOf(i), fetcher.get(i).getId());
+        }
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testFetchAllOnSingleThreadExecutor() throws Exception {
+        String apiUrl = "http://vsd/api/v2/";
+        final List<TestChildObject> refChildObjects = new ArrayList<TestChildObject>();
+        for (int i = 0; i < 5; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.add("X-Nuage-Count", String.valueOf(refChildObjects.size()));
+        startSession(restOperations, "object/childobject", HttpMethod.HEAD, HttpStatus.OK, null, responseHeaders);
+
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + "object/childobject"), EasyMock.eq(HttpMethod.HEAD), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq((Class<?>) null))).andReturn(new ResponseEntity(responseHeaders, HttpStatus.OK));
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + "object/childobject"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq(byte[].class))).andAnswer(() -> {
+                    HttpEntity<?> entity = (HttpEntity<?>) EasyMock.getCurrentArguments()[2];
+                    int page = Integer.parseInt(entity.getHeaders().getFirst("X-Nuage-Page"));
+                    List<TestChildObject> pageObjects = refChildObjects.subList(page * 2, Math.min(page * 2 + 2, refChildObjects.size()));
+                    return new ResponseEntity<byte[]>(mapper.writeValueAsBytes(pageObjects), HttpStatus.OK);
+                }).times(3);
+        EasyMock.replay(restOperations);
+
+        // The fetch holds the only thread of the executor: its pages are
+        // requested from that thread rather than queued behind it
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        session.setExecutor(executor);
+        try {
+            TestChildObjectFetcher fetcher = new TestChildObjectFetcher(new TestObject());
+            List<TestChildObject> childObjects = session.submit(() -> fetcher.fetchAll(null, null, 2, 2)).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(5, childObjects.size());
+            Assert.assertEquals("4", childObjects.get(4).getId());
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setExecutor(null);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFetchEach() throws JsonProcessingException, RestException {
+        // Create child objects
+        final List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        for (int i = 0; i < 3; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        startSession(restOperations, "object/childobject", HttpMethod.HEAD, HttpStatus.OK, null, null);
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.execute(EasyMock.eq("http://vsd/api/v2/object/childobject"), EasyMock.eq(HttpMethod.GET),
+                EasyMock.anyObject(RequestCallback.class), EasyMock.<ResponseExtractor<Object>> anyObject())).andAnswer(() -> {
+                    ResponseExtractor<?> responseExtractor = (ResponseExtractor<?>) EasyMock.getCurrentArguments()[3];
+                    return responseExtractor.extractData(new MockClientHttpResponse(mapper.writeValueAsBytes(refChildObjects), HttpStatus.OK));
+                });
+        EasyMock.replay(restOperations);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        TestChildObject staleChildObject = new TestChildObject();
+        staleChildObject.setId("stale");
+        fetcher.add(staleChildObject);
+
+        final List<String> ids = new ArrayList<String>();
+        fetcher.fetchEach(null, null, null, null, null, null, true, childObject -> ids.add(childObject.getId()));
+
+        // Make sure the objects are handed over and committed to the fetcher
+        Assert.assertEquals(Arrays.asList("0", "1", "2"), ids);
+        Assert.assertEquals(3, fetcher.size());
+        Assert.assertFalse(fetcher.contains(staleChildObject));
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testPublisher() throws JsonProcessingException, RestException {
+        // Create child objects
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        for (int i = 0; i < 5; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session
+        startPagedSession(restOperations, "object/childobject", mapper.writeValueAsString(refChildObjects.subList(0, 2)),
+                mapper.writeValueAsString(refChildObjects.subList(2, 4)), mapper.writeValueAsString(refChildObjects.subList(4, 5)));
+        session.setExecutor(Runnable::run);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        final List<String> ids = new ArrayList<String>();
+        final AtomicBoolean completed = new AtomicBoolean();
+        fetcher.publisher(null, null, 2).subscribe(new Flow.Subscriber<TestChildObject>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(TestChildObject item) {
+                ids.add(item.getId());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4"), ids);
+        Assert.assertTrue(completed.get());
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testPublisherCancellation() throws JsonProcessingException, RestException {
+        // Create child objects
+        List<RestObject> refChildObjects = new ArrayList<RestObject>();
+        for (int i = 0; i < 2; i++) {
+            TestChildObject childObject = new TestChildObject();
+            childObject.setId(String.valueOf(i));
+            refChildObjects.add(childObject);
+        }
+
+        // Start session, only one page should be requested
+        startPagedSession(restOperations, "object/childobject", mapper.writeValueAsString(refChildObjects));
+        session.setExecutor(Runnable::run);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(object);
+        final List<String> ids = new ArrayList<String>();
+        fetcher.publisher(null, null, 2).subscribe(new Flow.Subscriber<TestChildObject>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(TestChildObject item) {
+                ids.add(item.getId());
+                subscription.cancel();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                Assert.fail();
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList("0"), ids);
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testContainsReplacedChild() {
+        TestChildObject childObject1 = new TestChildObject();
+        childObject1.setId("1");
+        TestChildObject childObject2 = new TestChildObject();
+        childObject2.setId("2");
+
+        TestChildObjectFetcher fetcher = new TestChildObjectFetcher(new TestObject());
+        fetcher.add(childObject1);
+        Assert.assertTrue(fetcher.contains(childObject1));
+
+        fetcher.set(0, childObject2);
+        Assert.assertTrue(fetcher.contains(childObject2));
+        Assert.assertFalse(fetcher.contains(childObject1));
+    }
+
     @Test
     public void testFetchWithNoSessionAvailable() {
         try {
@@ -501,11 +856,81 @@ public class RestFetcherTest {
         Assert.assertEquals(3, childObjects.size());
     }
 
+    @Test
+    public void testFetchUnchangedContent() throws RestException, JsonProcessingException {
+        // Create child objects
+        TestChildObject childObject1 = new TestChildObject();
+        childObject1.setId("1");
+        TestChildObject childObject2 = new TestChildObject();
+        childObject2.setId("2");
+        String content = mapper.writeValueAsString(Arrays.asList(childObject1, childObject2));
+        String changedContent = mapper.writeValueAsString(Arrays.asList(childObject1));
+
+        // Start session, the server supplying no validators
+        startPagedSession(restOperations, "object/childobject", content, content, changedContent, changedContent);
+
+        TestObject object = new TestObject();
+        TestChildObjectFetcher fetcher = object.getChildObjectFetcher();
+        List<TestChildObject> childObjects = fetcher.fetch();
+        Assert.assertEquals(2, childObjects.size());
+
+        // Unchanged content is neither decoded nor merged, local
+        // modifications are discarded as for a regular fetch
+        fetcher.get(1).setMyOtherProperty("modified");
+        List<TestChildObject> unchangedChildObjects = fetcher.fetch();
+        Assert.assertEquals(2, unchangedChildObjects.size());
+        Assert.assertSame(fetcher.get(0), unchangedChildObjects.get(0));
+        Assert.assertSame(fetcher.get(1), unchangedChildObjects.get(1));
+        Assert.assertNull(fetcher.get(1).getMyOtherProperty());
+
+        childObjects = fetcher.fetch();
+        Assert.assertEquals(1, childObjects.size());
+        Assert.assertEquals(1, fetcher.size());
+
+        // Uncommitted fetches are never conditional
+        childObjects = fetcher.fetch(null, null, null, null, null, null, false);
+        Assert.assertEquals(1, childObjects.size());
+        Assert.assertNotSame(fetcher.get(0), childObjects.get(0));
+
+        // Verify mock calls
+        EasyMock.verify(restOperations);
+    }
+
     private Capture<HttpEntity<?>> startSession(RestOperations restOperations, String urlSuffix, HttpMethod method, HttpStatus responseStatus,
             String responseString, HttpHeaders responseHeaders) throws RestException {
         return startSession(restOperations, urlSuffix, method, responseStatus, responseString, responseHeaders, false);
     }
 
+    private Capture<HttpEntity<?>> startPagedSession(RestOperations restOperations, String urlSuffix, String... responseStrings) throws RestException {
+        String apiUrl = "http://vsd";
+        String apiPrefix = "api";
+
+        Capture<HttpEntity<?>> capturedHttpEntities = EasyMock.newCapture(CaptureType.ALL);
+
+        // Expected REST calls, one per page
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + '/' + apiPrefix + "/v2/root"), EasyMock.eq(HttpMethod.GET),
+                EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                .andReturn(new ResponseEntity<byte[]>("[{ \"APIKey\": \"1\" }]".getBytes(), HttpStatus.OK));
+        for (String responseString : responseStrings) {
+            EasyMock.expect(restOperations.exchange(EasyMock.eq(apiUrl + '/' + apiPrefix + "/v2/" + urlSuffix), EasyMock.eq(HttpMethod.GET),
+                    EasyMock.capture(capturedHttpEntities), EasyMock.eq(byte[].class)))
+                    .andReturn(new ResponseEntity<byte[]>(responseString.getBytes(), HttpStatus.OK));
+        }
+        EasyMock.replay(restOperations);
+
+        // Start REST session
+        session.setUsername("martin");
+        session.setPassword("martin");
+        session.setEnterprise("martin");
+        session.setApiUrl(apiUrl);
+        session.setApiPrefix(apiPrefix);
+        session.setVersion(2.1);
+        session.start();
+
+        return capturedHttpEntities;
+    }
+
     private Capture<HttpEntity<?>> startSession(RestOperations restOperations, String urlSuffix, HttpMethod method, HttpStatus responseStatus,
             String responseString, HttpHeaders responseHeaders, boolean simulate401Response) throws RestException {
         String username = "martin";
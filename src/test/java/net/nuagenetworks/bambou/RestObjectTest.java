@@ -38,6 +38,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -50,6 +51,7 @@ import org.springframework.web.client.RestOperations;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import net.nuagenetworks.bambou.cache.LruRestEntityCache;
 import net.nuagenetworks.bambou.spring.TestSpringConfig;
 import net.nuagenetworks.bambou.testobj.TestChildObject;
 import net.nuagenetworks.bambou.testobj.TestChildTemplateObject;
@@ -90,6 +92,21 @@ public class RestObjectTest {
         Assert.assertEquals(parentType, object.getParentType());
     }
 
+    @Test
+    public void testEqualsAndHashCode() {
+        TestObject object1 = new TestObject();
+        object1.setId("1");
+        TestObject object2 = new TestObject();
+        object2.setId("1");
+        TestChildObject childObject = new TestChildObject();
+        childObject.setId("1");
+
+        Assert.assertEquals(object1, object2);
+        Assert.assertEquals(object1.hashCode(), object2.hashCode());
+        Assert.assertNotEquals(object1, childObject);
+        Assert.assertNotEquals(object1, new TestObject());
+    }
+
     @Test
     public void testFetchObject() throws RestException, RestClientException, JsonProcessingException {
         String id = "12345";
@@ -116,6 +133,82 @@ public class RestObjectTest {
         EasyMock.verify(restOperations);
     }
 
+    @Test
+    public void testFetchObjectFromCache() throws RestException, RestClientException, JsonProcessingException {
+        String id = "12345";
+
+        // Create response object to fetch REST call
+        TestObject refObject = new TestObject();
+        refObject.setId(id);
+        refObject.setMyProperty("MyValue");
+
+        // Start session, expecting a single fetch
+        startSession(restOperations, "object/" + id, HttpMethod.GET, HttpStatus.OK, mapper.writeValueAsString(Arrays.asList(refObject)));
+        LruRestEntityCache entityCache = new LruRestEntityCache();
+        session.setEntityCache(entityCache);
+
+        try {
+            // Fetch object twice
+            for (int i = 0; i < 2; i++) {
+                TestObject object = new TestObject();
+                object.setId(id);
+                object.fetch();
+
+                Assert.assertEquals(refObject.getMyProperty(), object.getMyProperty());
+                Assert.assertTrue(object.getModifiedPropertyNames(session).isEmpty());
+            }
+
+            Assert.assertEquals(1, entityCache.getStats().getHitCount());
+            Assert.assertEquals(1, entityCache.getStats().getMissCount());
+
+            // Verify mock calls
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setEntityCache(null);
+        }
+    }
+
+    @Test
+    public void testFetchObjectNotModified() throws RestException, RestClientException, JsonProcessingException {
+        String id = "12345";
+        String url = "http://vsd/api/v2/object/" + id;
+
+        // Create response object to fetch REST call
+        TestObject refObject = new TestObject();
+        refObject.setId(id);
+        refObject.setMyProperty("MyValue");
+        String content = mapper.writeValueAsString(Arrays.asList(refObject));
+
+        // Start session
+        startSession(restOperations, "object/" + id, HttpMethod.GET, HttpStatus.OK, content);
+        TestObject object = new TestObject();
+        object.setId(id);
+        object.fetch();
+
+        // Fetch object with an entity tag, then conditionally
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag("\"1\"");
+        Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture();
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                .andReturn(new ResponseEntity<byte[]>(content.getBytes(), responseHeaders, HttpStatus.OK));
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity), EasyMock.eq(byte[].class)))
+                .andReturn(new ResponseEntity<byte[]>(responseHeaders, HttpStatus.NOT_MODIFIED));
+        EasyMock.replay(restOperations);
+
+        object.fetch();
+        object.setMyProperty("MyLocalValue");
+        object.fetch();
+
+        // Expect the state known to the server to be restored
+        Assert.assertEquals("\"1\"", capturedHttpEntity.getValue().getHeaders().getIfNoneMatch().get(0));
+        Assert.assertEquals(refObject.getMyProperty(), object.getMyProperty());
+        Assert.assertTrue(object.getModifiedPropertyNames(session).isEmpty());
+
+        // Verify mock calls
+        EasyMock.verify(restOperations);
+    }
+
     @Test
     public void testFetchObjectWithNoSessionAvailable() {
         String id = "12345";
@@ -152,6 +245,49 @@ public class RestObjectTest {
         EasyMock.verify(restOperations);
     }
 
+    @Test
+    public void testSaveModifiedProperties() throws RestException, RestClientException, JsonProcessingException {
+        String id = "12345";
+
+        // Create response object to fetch REST call
+        TestObject refObject = new TestObject();
+        refObject.setId(id);
+        refObject.setParentId("67890");
+        refObject.setMyProperty("MyValue");
+
+        // Fetch object
+        startSession(restOperations, "object/" + id, HttpMethod.GET, HttpStatus.OK, mapper.writeValueAsString(Arrays.asList(refObject)));
+        TestObject object = new TestObject();
+        object.setId(id);
+        object.fetch();
+        EasyMock.verify(restOperations);
+
+        // Saving the unmodified object sends nothing
+        Assert.assertTrue(object.getModifiedPropertyNames(session).isEmpty());
+        EasyMock.reset(restOperations);
+        EasyMock.replay(restOperations);
+        object.save();
+        EasyMock.verify(restOperations);
+
+        // Only the modified properties are sent
+        object.setMyProperty("MyOtherValue");
+        object.setParentId(null);
+        Assert.assertEquals(Arrays.asList("parentID", "myProperty"), object.getModifiedPropertyNames(session));
+        Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture();
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object/" + id), EasyMock.eq(HttpMethod.PUT),
+                EasyMock.capture(capturedHttpEntity), EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>("[]".getBytes(), HttpStatus.NO_CONTENT));
+        EasyMock.replay(restOperations);
+        object.save();
+        EasyMock.verify(restOperations);
+        Assert.assertEquals(mapper.readTree("{\"myProperty\":\"MyOtherValue\",\"parentID\":null}"), capturedHttpEntity.getValue().getBody());
+
+        // The saved state becomes the new baseline
+        Assert.assertTrue(object.getModifiedPropertyNames(session).isEmpty());
+        object.markDirty();
+        Assert.assertNull(object.getModifiedPropertyNames(session));
+    }
+
     @Test
     public void testDeleteObject() throws RestException, RestClientException, JsonProcessingException {
         String id = "12345";
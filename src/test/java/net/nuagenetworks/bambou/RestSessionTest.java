@@ -26,9 +26,23 @@
 */
 package net.nuagenetworks.bambou;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
@@ -50,7 +64,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestObject;
 import net.nuagenetworks.bambou.testobj.TestRootObject;
+import net.nuagenetworks.bambou.util.BambouExecutors;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
@@ -82,6 +98,29 @@ public class RestSessionTest {
         Assert.assertEquals("TestValue", session.getRootObject().getTestAttr());
     }
 
+    @Test
+    public void testBuildSession() throws Exception {
+        TestRootObject rootObject = new TestRootObject();
+        rootObject.setApiKey("12345");
+
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/root"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(mapper.writeValueAsBytes(Arrays.asList(rootObject)), HttpStatus.OK));
+        EasyMock.replay(restOperations);
+
+        RestSession<TestRootObject> session = RestSession.builder(TestRootObject.class).username("martin").password("martin").enterprise("martin")
+                .apiUrl("http://vsd").apiPrefix("api").version(2.1).restOperations(restOperations).build();
+        try {
+            session.start();
+
+            Assert.assertSame(restOperations, session.getRestClientService().getRestOperations());
+            Assert.assertEquals("12345", session.getRootObject().getApiKey());
+            EasyMock.verify(restOperations);
+        } finally {
+            session.reset();
+        }
+    }
+
     @Test
     public void testStartSessionWithWrongCredentials() throws RestException, RestClientException, JsonProcessingException {
         try {
@@ -139,6 +178,482 @@ public class RestSessionTest {
         EasyMock.verify(restOperations);
     }
 
+    @Test
+    public void testSessionHeadersReused() throws RestException {
+        String url = "http://vsd";
+
+        session.setUsername("martin");
+        session.setPassword("martin");
+        session.setEnterprise("martin");
+
+        EasyMock.reset(restOperations);
+        Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture(CaptureType.ALL);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity), EasyMock.eq(byte[].class)))
+                .andReturn(new ResponseEntity<byte[]>(HttpStatus.OK)).times(3);
+        EasyMock.replay(restOperations);
+
+        session.sendRequestWithRetry(HttpMethod.GET, url, null, null, null, String.class);
+        session.sendRequestWithRetry(HttpMethod.GET, url, null, null, null, String.class);
+        session.setApiKey("2");
+        session.sendRequestWithRetry(HttpMethod.GET, url, null, null, null, String.class);
+
+        // Headers are only rebuilt when the key changes
+        List<HttpEntity<?>> requests = capturedHttpEntity.getValues();
+        Assert.assertSame(requests.get(0).getHeaders(), requests.get(1).getHeaders());
+        Assert.assertNotSame(requests.get(1).getHeaders(), requests.get(2).getHeaders());
+        Assert.assertEquals("XREST bWFydGluOjI=", requests.get(2).getHeaders().getFirst("Authorization"));
+
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testConcurrentUnauthorizedResponses() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        final String url = "http://vsd/api/v2/object/1";
+
+        TestRootObject renewedRootObject = new TestRootObject();
+        renewedRootObject.setApiKey("2");
+
+        // The second request is sent and re-authenticated while the first one
+        // is in flight with the expired key
+        EasyMock.reset(restOperations);
+        Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture(CaptureType.ALL);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity),
+                EasyMock.eq(byte[].class))).andAnswer(() -> {
+                    session.sendRequestWithRetry(HttpMethod.GET, url, null, null, null, String.class);
+                    return new ResponseEntity<byte[]>(HttpStatus.UNAUTHORIZED);
+                });
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity),
+                EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(HttpStatus.UNAUTHORIZED));
+        EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/root"), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity),
+                EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(mapper.writeValueAsBytes(Arrays.asList(renewedRootObject)), HttpStatus.OK));
+        EasyMock.expect(restOperations.exchange(EasyMock.eq(url), EasyMock.eq(HttpMethod.GET), EasyMock.capture(capturedHttpEntity),
+                EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(HttpStatus.OK)).times(2);
+        EasyMock.replay(restOperations);
+
+        ResponseEntity<String> response = session.sendRequestWithRetry(HttpMethod.GET, url, null, null, null, String.class);
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals("2", session.getRootObject().getApiKey());
+
+        // A single login, with the password, and both requests replayed with
+        // the new key
+        List<HttpEntity<?>> requests = capturedHttpEntity.getValues();
+        Assert.assertEquals(5, requests.size());
+        Assert.assertEquals("XREST bWFydGluOm1hcnRpbg==", requests.get(2).getHeaders().getFirst("Authorization"));
+        Assert.assertEquals("XREST bWFydGluOjI=", requests.get(3).getHeaders().getFirst("Authorization"));
+        Assert.assertEquals("XREST bWFydGluOjI=", requests.get(4).getHeaders().getFirst("Authorization"));
+
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testApiKeyRenewal() throws Exception {
+        TestRootObject rootObject = new TestRootObject();
+        rootObject.setApiKey("1");
+        rootObject.setApiKeyExpiry(System.currentTimeMillis() + 200);
+
+        TestRootObject renewedRootObject = new TestRootObject();
+        renewedRootObject.setApiKey("2");
+
+        session.setExecutor(Runnable::run);
+        try {
+            RestSession<TestRootObject> session = startSession(HttpStatus.OK, mapper.writeValueAsString(Arrays.asList(rootObject)));
+            Assert.assertEquals("1", session.getRootObject().getApiKey());
+
+            // The key expires within the renewal margin: it gets renewed
+            // halfway through its lifetime
+            EasyMock.reset(restOperations);
+            final CountDownLatch renewed = new CountDownLatch(1);
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/root"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                    EasyMock.eq(byte[].class))).andAnswer(() -> {
+                        renewed.countDown();
+                        return new ResponseEntity<byte[]>(mapper.writeValueAsBytes(Arrays.asList(renewedRootObject)), HttpStatus.OK);
+                    });
+            EasyMock.replay(restOperations);
+
+            Assert.assertTrue(renewed.await(5, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"2".equals(session.getRootObject().getApiKey()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals("2", session.getRootObject().getApiKey());
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testApiKeyRenewalWithUnchangedExpiry() throws Exception {
+        long expiry = System.currentTimeMillis() + 200;
+        TestRootObject rootObject = new TestRootObject();
+        rootObject.setApiKey("1");
+        rootObject.setApiKeyExpiry(expiry);
+
+        session.setExecutor(Runnable::run);
+        try {
+            RestSession<TestRootObject> session = startSession(HttpStatus.OK, mapper.writeValueAsString(Arrays.asList(rootObject)));
+
+            // The server hands back the same key: it gets renewed once, not
+            // again and again at half the remaining lifetime
+            EasyMock.reset(restOperations);
+            final AtomicInteger logins = new AtomicInteger();
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/root"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                    EasyMock.eq(byte[].class))).andAnswer(() -> {
+                        logins.incrementAndGet();
+                        return new ResponseEntity<byte[]>(mapper.writeValueAsBytes(Arrays.asList(rootObject)), HttpStatus.OK);
+                    }).anyTimes();
+            EasyMock.replay(restOperations);
+
+            Thread.sleep(Math.max(0, expiry - System.currentTimeMillis()) + 100);
+            Assert.assertEquals(1, logins.get());
+            Assert.assertEquals("1", session.getRootObject().getApiKey());
+        } finally {
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testBulkSaveInChunks() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        List<TestObject> objects = new ArrayList<TestObject>();
+        for (int i = 0; i < 5; i++) {
+            TestObject object = new TestObject();
+            object.setId(String.valueOf(i));
+            objects.add(object);
+        }
+
+        session.setBulkChunkSize(2);
+        session.setExecutor(Runnable::run);
+        try {
+            EasyMock.reset(restOperations);
+            Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture(CaptureType.ALL);
+            for (int chunkLength : new int[] { 2, 2, 1 }) {
+                EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1"), EasyMock.eq(HttpMethod.PUT),
+                        EasyMock.capture(capturedHttpEntity), EasyMock.eq(byte[].class)))
+                        .andReturn(new ResponseEntity<byte[]>(bulkResponse(chunkLength).getBytes(), HttpStatus.OK));
+            }
+            EasyMock.replay(restOperations);
+
+            BulkResponse<TestObject> response = session.bulkSave(objects);
+
+            // Each chunk only carries its own objects
+            Assert.assertEquals(2, ((List<?>) capturedHttpEntity.getValues().get(0).getBody()).size());
+            Assert.assertSame(objects.get(4), ((List<?>) capturedHttpEntity.getValues().get(2).getBody()).get(0));
+
+            // Indexes refer to the whole list and counts are summed up
+            Assert.assertEquals(5, response.getResponse().size());
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(i, response.getResponse().get(i).getIndex());
+            }
+            Assert.assertEquals("5", response.getResponseMetadata().getSuccess());
+            Assert.assertEquals("0", response.getResponseMetadata().getFailure());
+            Assert.assertEquals("5", response.getResponseMetadata().getTotal());
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setBulkChunkSize(500);
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testBulkSaveWithFailedChunk() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        List<TestObject> objects = new ArrayList<TestObject>();
+        for (int i = 0; i < 5; i++) {
+            TestObject object = new TestObject();
+            object.setId(String.valueOf(i));
+            objects.add(object);
+        }
+
+        session.setBulkChunkSize(2);
+        session.setExecutor(Runnable::run);
+        try {
+            EasyMock.reset(restOperations);
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1"), EasyMock.eq(HttpMethod.PUT),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(2).getBytes(), HttpStatus.OK))
+                    .andReturn(new ResponseEntity<byte[]>(HttpStatus.SERVICE_UNAVAILABLE))
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(1).getBytes(), HttpStatus.OK));
+            EasyMock.replay(restOperations);
+
+            // The middle chunk fails: the other chunks are still reported
+            BulkResponse<TestObject> response = session.bulkSave(objects);
+            Assert.assertEquals(5, response.getResponse().size());
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(i, response.getResponse().get(i).getIndex());
+                Assert.assertEquals((i == 2 || i == 3) ? "503" : "200", response.getResponse().get(i).getStatus());
+            }
+            Assert.assertEquals("3", response.getResponseMetadata().getSuccess());
+            Assert.assertEquals("2", response.getResponseMetadata().getFailure());
+            Assert.assertEquals("5", response.getResponseMetadata().getTotal());
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setBulkChunkSize(500);
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testBulkSaveInChunksOnSingleThreadExecutor() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        List<TestObject> objects = new ArrayList<TestObject>();
+        for (int i = 0; i < 5; i++) {
+            TestObject object = new TestObject();
+            object.setId(String.valueOf(i));
+            objects.add(object);
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        session.setBulkChunkSize(2);
+        session.setExecutor(executor);
+        try {
+            EasyMock.reset(restOperations);
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1"), EasyMock.eq(HttpMethod.PUT),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(2).getBytes(), HttpStatus.OK)).times(2)
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(1).getBytes(), HttpStatus.OK));
+            EasyMock.replay(restOperations);
+
+            // The bulk operation holds the only thread of the executor: its
+            // chunks are sent from that thread rather than queued behind it
+            BulkResponse<TestObject> response = session.submit(() -> session.bulkSave(objects)).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(5, response.getResponse().size());
+            Assert.assertEquals("5", response.getResponseMetadata().getSuccess());
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setBulkChunkSize(500);
+            session.setExecutor(null);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBulkDeleteInChunks() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        List<TestObject> objects = new ArrayList<TestObject>();
+        for (int i = 0; i < 3; i++) {
+            TestObject object = new TestObject();
+            object.setId(String.valueOf(i));
+            objects.add(object);
+        }
+
+        session.setBulkChunkSize(2);
+        session.setExecutor(Runnable::run);
+        try {
+            EasyMock.reset(restOperations);
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1&id=0&id=1"), EasyMock.eq(HttpMethod.DELETE),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(bulkResponse(2).getBytes(), HttpStatus.OK));
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1&id=2"), EasyMock.eq(HttpMethod.DELETE),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(bulkResponse(1).getBytes(), HttpStatus.OK));
+            EasyMock.replay(restOperations);
+
+            BulkResponse<TestObject> response = session.bulkDelete(objects);
+            Assert.assertEquals(2, response.getResponse().get(2).getIndex());
+            Assert.assertEquals("3", response.getResponseMetadata().getTotal());
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.setBulkChunkSize(500);
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        List<TestObject> objects = new ArrayList<TestObject>();
+        for (int i = 0; i < 4; i++) {
+            TestObject object = new TestObject();
+            object.setId(String.valueOf(i));
+            objects.add(object);
+        }
+
+        session.setExecutor(Runnable::run);
+        RestWriteBehindQueue queue = session.enableWriteBehind(1, TimeUnit.HOURS, 3);
+        try {
+            EasyMock.reset(restOperations);
+            Capture<HttpEntity<?>> capturedHttpEntity = EasyMock.newCapture();
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1"), EasyMock.eq(HttpMethod.PUT),
+                    EasyMock.capture(capturedHttpEntity), EasyMock.eq(byte[].class)))
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(3).getBytes(), HttpStatus.OK));
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1&id=3"), EasyMock.eq(HttpMethod.DELETE),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(bulkResponse(1).getBytes(), HttpStatus.OK));
+            EasyMock.replay(restOperations);
+
+            // Repeated saves are sent once, the batch is sent when full
+            RestFuture<Void> firstSave = session.saveAsync(objects.get(0));
+            RestFuture<BulkResponse.ResponseItem<TestObject>> secondSave = queue.save(objects.get(0));
+            queue.save(objects.get(1));
+            Assert.assertFalse(firstSave.isDone());
+            RestFuture<BulkResponse.ResponseItem<TestObject>> thirdSave = queue.save(objects.get(2));
+
+            firstSave.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0, secondSave.get(5, TimeUnit.SECONDS).getIndex());
+            Assert.assertEquals(2, thirdSave.get(5, TimeUnit.SECONDS).getIndex());
+            Assert.assertEquals(3, ((List<?>) capturedHttpEntity.getValue().getBody()).size());
+
+            // Pending writes are sent on flush
+            RestFuture<Void> delete = session.deleteAsync(objects.get(3));
+            Assert.assertFalse(delete.isDone());
+            queue.flush();
+            delete.get(5, TimeUnit.SECONDS);
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.disableWriteBehind();
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testWriteBehindFlushAwaitsDispatchedBatches() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+        TestObject object = new TestObject();
+        object.setId("0");
+
+        // Batches are sent late on another thread
+        session.setExecutor(task -> new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            task.run();
+        }).start());
+        RestWriteBehindQueue queue = session.enableWriteBehind(1, TimeUnit.HOURS, 1);
+        try {
+            EasyMock.reset(restOperations);
+            EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object?responseChoice=1"), EasyMock.eq(HttpMethod.PUT),
+                    EasyMock.anyObject(HttpEntity.class), EasyMock.eq(byte[].class)))
+                    .andReturn(new ResponseEntity<byte[]>(bulkResponse(1).getBytes(), HttpStatus.OK));
+            EasyMock.replay(restOperations);
+
+            // The full batch is already dispatched when flushing
+            RestFuture<BulkResponse.ResponseItem<TestObject>> save = queue.save(object);
+            queue.flush();
+            Assert.assertTrue(save.isDone());
+
+            // Saved objects are marked clean
+            Assert.assertEquals(0, object.getModifiedPropertyNames(session).size());
+
+            EasyMock.verify(restOperations);
+        } finally {
+            session.disableWriteBehind();
+            session.setExecutor(null);
+        }
+    }
+
+    @Test
+    public void testFetchAsync() throws Exception {
+        RestSession<TestRootObject> session = startSession();
+
+        TestObject refObject = new TestObject();
+        refObject.setId("1");
+        refObject.setMyProperty("MyValue");
+
+        EasyMock.reset(restOperations);
+        EasyMock.expect(restOperations.exchange(EasyMock.eq("http://vsd/api/v2/object/1"), EasyMock.eq(HttpMethod.GET), EasyMock.anyObject(HttpEntity.class),
+                EasyMock.eq(byte[].class))).andReturn(new ResponseEntity<byte[]>(mapper.writeValueAsBytes(Arrays.asList(refObject)), HttpStatus.OK));
+        EasyMock.replay(restOperations);
+
+        TestObject object = new TestObject();
+        object.setId("1");
+        object.fetchAsync().get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals("MyValue", object.getMyProperty());
+        EasyMock.verify(restOperations);
+    }
+
+    @Test
+    public void testCancelAsync() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AtomicBoolean executed = new AtomicBoolean();
+        session.setExecutor(tasks::add);
+
+        RestFuture<Void> future = session.submit(() -> {
+            executed.set(true);
+            return null;
+        });
+        Assert.assertTrue(future.cancel(true));
+        tasks.get(0).run();
+
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertFalse(executed.get());
+        session.setExecutor(null);
+    }
+
+    @Test
+    public void testAsyncTimeout() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        RestFuture<Void> future = session.submit((Callable<Void>) () -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return null;
+        }).withTimeout(50, TimeUnit.MILLISECONDS);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBindSession() {
+        RestSession<?> previousSession = RestSession.getCurrentSession();
+        RestSession.Scope scope = session.bind();
+        try {
+            Assert.assertSame(session, RestSession.getCurrentSession());
+        } finally {
+            scope.close();
+        }
+        Assert.assertSame(previousSession, RestSession.getCurrentSession());
+    }
+
+    @Test
+    public void testPropagateSession() throws Exception {
+        final AtomicReference<RestSession<?>> taskSession = new AtomicReference<RestSession<?>>();
+        final CountDownLatch done = new CountDownLatch(1);
+        ExecutorService executor = BambouExecutors.newVirtualThreadExecutor();
+        try {
+            Executor propagatingExecutor = RestSession.propagating(executor);
+            RestSession.Scope scope = session.bind();
+            try {
+                propagatingExecutor.execute(() -> {
+                    taskSession.set(RestSession.getCurrentSession());
+                    done.countDown();
+                });
+            } finally {
+                scope.close();
+            }
+
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertSame(session, taskSession.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String bulkResponse(int length) {
+        StringBuilder response = new StringBuilder("{\"response\": [");
+        for (int i = 0; i < length; i++) {
+            response.append((i > 0) ? ", " : "").append("{\"status\": \"200\", \"index\": ").append(i).append(", \"data\": {}}");
+        }
+
+        return response.append("], \"responseMetadata\": {\"success\": \"").append(length).append("\", \"failure\": \"0\", \"total\": \"")
+                .append(length).append("\"}}").toString();
+    }
+
     private RestSession<TestRootObject> startSession() throws RestException, RestClientException, JsonProcessingException {
         TestRootObject rootObject = new TestRootObject();
         rootObject.setApiKey("12345");
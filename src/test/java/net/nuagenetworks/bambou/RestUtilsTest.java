@@ -33,21 +33,30 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import net.nuagenetworks.bambou.spring.TestSpringConfig;
+import net.nuagenetworks.bambou.testobj.TestRootObject;
+import net.nuagenetworks.bambou.util.JsonCodec;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestSpringConfig.class, loader = AnnotationConfigContextLoader.class)
 public class RestUtilsTest {
 	private static final Logger logger = LoggerFactory.getLogger(RestUtilsTest.class);
+
+    @Autowired
+    private RestSession<TestRootObject> session;
+
     @Test
     public void testCreateRestObjectWithContent() throws RestException, JsonProcessingException, IOException {
         JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
@@ -76,6 +85,27 @@ public class RestUtilsTest {
         Assert.assertEquals("MyParentType", node.get("parentType").asText());
     }
     
+    @Test
+    public void testToStringWithSessionCodec() throws RestException {
+        RestObject object = new RestObject();
+        object.setId("123");
+
+        JsonCodec defaultJsonCodec = session.getRestClientService().getJsonCodec();
+        RestSession.Scope scope = session.bind();
+        try {
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+            session.getRestClientService().setJsonCodec(new JsonCodec(objectMapper));
+
+            Assert.assertTrue(RestUtils.toString(object).contains("\n"));
+        } finally {
+            scope.close();
+            session.getRestClientService().setJsonCodec(defaultJsonCodec);
+        }
+
+        Assert.assertFalse(RestUtils.toString(object).contains("\n"));
+    }
+
     @Test
     public void testToJson() throws RestException {
     	
@@ -0,0 +1,67 @@
+/*
+  Copyright (c) 2015, Alcatel-Lucent Inc
+  All rights reserved.
+
+  Redistribution and use in source and binary forms, with or without
+  modification, are permitted provided that the following conditions are met:
+      * Redistributions of source code must retain the above copyright
+        notice, this list of conditions and the following disclaimer.
+      * Redistributions in binary form must reproduce the above copyright
+        notice, this list of conditions and the following disclaimer in the
+        documentation and/or other materials provided with the distribution.
+      * Neither the name of the copyright holder nor the names of its contributors
+        may be used to endorse or promote products derived from this software without
+        specific prior written permission.
+
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY
+  DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+  LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+  ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+  SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package net.nuagenetworks.bambou;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import net.nuagenetworks.bambou.spring.SpringConfig;
+import net.nuagenetworks.bambou.testobj.TestRootObject;
+
+/**
+ * Compares the time needed to get a session ready to start, through the
+ * Spring context or through {@link RestSession#builder(Class)}. Startup costs
+ * are only meaningful in a fresh JVM, so each path is measured by its own run:
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) net.nuagenetworks.bambou.StartupBenchmark spring
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) net.nuagenetworks.bambou.StartupBenchmark builder
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String path = (args.length > 0) ? args[0] : "builder";
+
+        long startTime = System.nanoTime();
+        RestSession<TestRootObject> session;
+        AnnotationConfigApplicationContext context = null;
+        if (path.equals("spring")) {
+            context = new AnnotationConfigApplicationContext(SpringConfig.class);
+            session = new RestSession<TestRootObject>(TestRootObject.class);
+            context.getAutowireCapableBeanFactory().autowireBean(session);
+        } else {
+            session = RestSession.builder(TestRootObject.class).build();
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        System.out.println(path + ": session ready in " + (elapsedTime / 1000000) + " ms (" + session.getRestClientService() + ")");
+        if (context != null) {
+            context.close();
+        }
+    }
+}